@@ -0,0 +1,171 @@
+package com.oce.java8.training.bootstrap;
+
+import com.oce.java8.training.model.Discount;
+import com.oce.java8.training.model.Manager;
+import com.oce.java8.training.model.Product;
+import com.oce.java8.training.model.Section;
+import com.oce.java8.training.model.Store;
+import com.oce.java8.training.model.StoreSection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Generates large {@link Store}s, for load tests and benchmarks.
+ * <p>
+ * The products are generated in parallel, in fixed size blocks. Each block has its own {@link SplittableRandom},
+ * seeded from the generator seed and the block number, so the same seed always produces the same store,
+ * regardless of the number of threads which generated it.
+ */
+public final class CatalogGenerator {
+
+    private static final int BLOCK_SIZE = 4096;
+
+    private static final StoreSection[] STORE_SECTIONS = StoreSection.values();
+
+    // the brands are listed from the most to the least popular one
+    private static final String[] BRANDS = {"Samsung", "Apple", "Lenovo", "LG", "Dell", "HP", "Asus", "Acer",
+            "Microsoft", "Google", "Huawei", "Sony"};
+
+    private static final String[][] MODELS = {
+            {"Tab", "Pad", "Slate", "Note", "Nexus"},   // Tablets
+            {"View", "Ultra", "Curved", "Pro", "Gaming"}, // Monitors
+            {"Book", "Air", "Pro", "ThinkPad", "Zen"}     // Laptops
+    };
+
+    private static final String[][] TAGS = {
+            {"android", "ios", "lte", "stylus", "kids", "8-inch", "10-inch", "refurbished"},
+            {"4k", "curved", "hdr", "144hz", "ips", "usb-c", "27-inch", "refurbished"},
+            {"ultrabook", "gaming", "ssd", "touch", "2-in-1", "business", "15-inch", "refurbished"}
+    };
+
+    // the [min, max) base prices of each store section
+    private static final double[][] PRICES = {{80, 1200}, {90, 1800}, {250, 3500}};
+
+    private final long seed;
+
+    public CatalogGenerator(final long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Generates a store with the given number of sections, whose products are evenly spread across the sections
+     */
+    public Store generateStore(final int sectionsCount, final int productsCount) {
+        // the counts are checked by generateProducts
+        final Product[] products = generateProducts(sectionsCount, productsCount);
+
+        final Set<Section> sections = new HashSet<>();
+        for (int sectionIndex = 0; sectionIndex < sectionsCount; sectionIndex++) {
+            final int from = sectionStart(sectionIndex, sectionsCount, productsCount);
+            final int to = sectionStart(sectionIndex + 1, sectionsCount, productsCount);
+            sections.add(new Section(sectionIndex + 1, sectionName(sectionIndex),
+                                     new ArrayList<>(Arrays.asList(products).subList(from, to))));
+        }
+
+        final Set<Manager> managers = new HashSet<>(Arrays.asList(new Manager(1, "John Doe"),
+                                                                  new Manager(2, "Jane Charming")));
+
+        return new Store(1, "Generated store", "Everywhere", sections, managers);
+    }
+
+    /**
+     * Generates the products of a store with the given number of sections; the product ids start from 1
+     */
+    public Product[] generateProducts(final int sectionsCount, final int productsCount) {
+        if (sectionsCount < 0 || productsCount < 0) {
+            throw new IllegalArgumentException("The sections and products counts cannot be negative");
+        }
+        if (sectionsCount == 0 && productsCount > 0) {
+            throw new IllegalArgumentException("The products need at least a section");
+        }
+
+        final Product[] products = new Product[productsCount];
+        final int blocksCount = (productsCount + BLOCK_SIZE - 1) / BLOCK_SIZE;
+
+        IntStream.range(0, blocksCount)
+                 .parallel()
+                 .forEach(block -> {
+                     final SplittableRandom random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + block);
+                     final int from = block * BLOCK_SIZE;
+                     final int to = Math.min(from + BLOCK_SIZE, productsCount);
+                     for (int index = from; index < to; index++) {
+                         final int sectionIndex = sectionOf(index, sectionsCount, productsCount);
+                         products[index] = generateProduct(index + 1, sectionName(sectionIndex).ordinal(), random);
+                     }
+                 });
+
+        return products;
+    }
+
+    private Product generateProduct(final int id, final int section, final SplittableRandom random) {
+        final String brand = BRANDS[skewed(random, BRANDS.length)];
+        final String model = MODELS[section][random.nextInt(MODELS[section].length)];
+        final String name = brand + " " + model + " " + (100 + random.nextInt(900));
+
+        // a log-uniform price, so that the cheap products are more frequent than the expensive ones
+        final double min = PRICES[section][0];
+        final double max = PRICES[section][1];
+        final double price = Math.round(min * Math.pow(max / min, random.nextDouble()) * 100) / 100d;
+
+        return new Product(id, name, price, generateDiscount(price, random), generateTags(section, random));
+    }
+
+    private static Discount generateDiscount(final double price, final SplittableRandom random) {
+        // roughly one product out of five has a discount
+        if (random.nextInt(5) != 0) {
+            return null;
+        }
+
+        final int percent = 5 * (1 + random.nextInt(8));
+        return random.nextInt(10) < 6 ? new Discount(percent, Discount.Type.Percent)
+                                      : new Discount(Math.max(1, (int) (price * percent / 100)), Discount.Type.Value);
+    }
+
+    private static List<String> generateTags(final int section, final SplittableRandom random) {
+        final String[] sectionTags = TAGS[section];
+        final int tagsCount = random.nextInt(4);
+        if (tagsCount == 0) {
+            return Collections.emptyList();
+        }
+
+        final List<String> tags = new ArrayList<>(tagsCount);
+        for (int index = 0; index < tagsCount; index++) {
+            // the same (interned) tag instances are shared by all the products
+            final String tag = sectionTags[skewed(random, sectionTags.length)];
+            if (!tags.contains(tag)) {
+                tags.add(tag);
+            }
+        }
+        return tags;
+    }
+
+    // a random index in [0, bound), where the smaller indexes are (quadratically) more likely
+    private static int skewed(final SplittableRandom random, final int bound) {
+        final double value = random.nextDouble();
+        return (int) (value * value * bound);
+    }
+
+    private static StoreSection sectionName(final int sectionIndex) {
+        return STORE_SECTIONS[sectionIndex % STORE_SECTIONS.length];
+    }
+
+    private static int sectionStart(final int sectionIndex, final int sectionsCount, final int productsCount) {
+        return (int) ((long) sectionIndex * productsCount / sectionsCount);
+    }
+
+    private static int sectionOf(final int productIndex, final int sectionsCount, final int productsCount) {
+        // the inverse of sectionStart: the last section whose start is <= productIndex
+        int sectionIndex = (int) ((long) productIndex * sectionsCount / productsCount);
+        while (sectionStart(sectionIndex + 1, sectionsCount, productsCount) <= productIndex) {
+            sectionIndex++;
+        }
+        return sectionIndex;
+    }
+}
@@ -1,5 +1,7 @@
 package com.oce.java8.training.bootstrap;
 
+import com.oce.java8.training.catalog.QueryCache;
+import com.oce.java8.training.catalog.StoreIndex;
 import com.oce.java8.training.model.Product;
 import com.oce.java8.training.model.Discount;
 import com.oce.java8.training.model.Manager;
@@ -17,7 +19,13 @@ import static com.oce.java8.training.model.StoreSection.Tablets;
 
 public final class StoreSetup {
 
-    private static Store defaultStore;
+    private static final int DEFAULT_QUERY_CACHE_SIZE = 1024;
+
+    // the default store, its index and its version are published together, so the readers never mix them up
+    private static volatile DefaultCatalog defaultCatalog;
+
+    private static final QueryCache defaultQueryCache = new QueryCache(DEFAULT_QUERY_CACHE_SIZE,
+                                                                       StoreSetup::getCatalogVersion);
 
     static {
         final Section tabletsSection = new Section(1, Tablets, buildDefaultTablets());
@@ -27,13 +35,85 @@ public final class StoreSetup {
         final Manager john = new Manager(1, "John Doe");
         final Manager jane = new Manager(2, "Jane Charming");
 
-        defaultStore = new Store(1, "eMag", "Over there",
-                                 new HashSet<>(Arrays.asList(tabletsSection, monitorsSection, laptopsSection)),
-                                 new HashSet<>(Arrays.asList(john, jane)));
+        final Store store = new Store(1, "eMag", "Over there",
+                                      new HashSet<>(Arrays.asList(tabletsSection, monitorsSection, laptopsSection)),
+                                      new HashSet<>(Arrays.asList(john, jane)));
+        defaultCatalog = new DefaultCatalog(store, StoreIndex.of(store), 0);
     }
 
     public static Store getDefaultStore() {
-        return defaultStore;
+        return defaultCatalog.getStore();
+    }
+
+    /**
+     * Returns the index of the current default store; a caller which also needs the store or the version should
+     * get them from the same {@link #getDefaultCatalog()} snapshot
+     */
+    public static StoreIndex getDefaultStoreIndex() {
+        return defaultCatalog.getStoreIndex();
+    }
+
+    /**
+     * Returns the current default store, with its index and its version
+     */
+    public static DefaultCatalog getDefaultCatalog() {
+        return defaultCatalog;
+    }
+
+    /**
+     * Replaces the default store, which invalidates the cached query results
+     */
+    public static synchronized void setDefaultStore(final Store store) {
+        defaultCatalog = new DefaultCatalog(store, StoreIndex.of(store), defaultCatalog.getVersion() + 1);
+    }
+
+    /**
+     * Must be called after the sections or the products of the default store are mutated in place, to rebuild its
+     * index and invalidate the cached query results
+     */
+    public static synchronized void defaultStoreChanged() {
+        final Store store = defaultCatalog.getStore();
+        defaultCatalog = new DefaultCatalog(store, StoreIndex.of(store), defaultCatalog.getVersion() + 1);
+    }
+
+    public static long getCatalogVersion() {
+        return defaultCatalog.getVersion();
+    }
+
+    /**
+     * The cache of the query results over the default store
+     */
+    public static QueryCache getDefaultQueryCache() {
+        return defaultQueryCache;
+    }
+
+    /**
+     * An immutable snapshot of the default store, its index and its version (bumped every time the default store is
+     * replaced or mutated)
+     */
+    public static final class DefaultCatalog {
+
+        private final Store store;
+        private final StoreIndex storeIndex;
+        private final long version;
+
+        private DefaultCatalog(final Store store, final StoreIndex storeIndex, final long version) {
+            this.store = store;
+            this.storeIndex = storeIndex;
+            this.version = version;
+        }
+
+        public Store getStore() {
+            return store;
+        }
+
+        public StoreIndex getStoreIndex() {
+            return storeIndex;
+        }
+
+        public long getVersion() {
+            return version;
+        }
     }
 
     private static List<Product> buildDefaultTablets() {
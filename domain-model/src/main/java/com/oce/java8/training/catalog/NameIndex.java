@@ -0,0 +1,156 @@
+package com.oce.java8.training.catalog;
+
+import com.oce.java8.training.model.Product;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A trigram inverted index over the {@link Product} names, which answers case-insensitive substring queries.
+ * <p>
+ * Each (lower case) name is split in overlapping three character grams and every gram keeps the sorted list of
+ * the product ordinals which contain it. A query intersects the posting lists of its own grams and only verifies
+ * the surviving candidates, instead of scanning every name.
+ */
+public final class NameIndex {
+
+    private static final int GRAM_LENGTH = 3;
+
+    private static final int[] NO_ORDINALS = new int[0];
+
+    private final String[] lowerCaseNames;
+
+    // the sorted trigram keys and, on the same position, their ascending product ordinals
+    private final long[] grams;
+    private final int[][] postings;
+
+    private NameIndex(final String[] lowerCaseNames, final long[] grams, final int[][] postings) {
+        this.lowerCaseNames = lowerCaseNames;
+        this.grams = grams;
+        this.postings = postings;
+    }
+
+    public static NameIndex of(final ProductColumns columns) {
+        final String[] lowerCaseNames = new String[columns.size()];
+        final Map<Long, PostingList> postingLists = new HashMap<>();
+
+        for (int ordinal = 0; ordinal < lowerCaseNames.length; ordinal++) {
+            final String name = columns.getName(ordinal);
+            final String lowerCaseName = name != null ? name.toLowerCase(Locale.ROOT) : "";
+            lowerCaseNames[ordinal] = lowerCaseName;
+
+            for (int index = 0; index + GRAM_LENGTH <= lowerCaseName.length(); index++) {
+                postingLists.computeIfAbsent(gram(lowerCaseName, index), key -> new PostingList())
+                            .add(ordinal);
+            }
+        }
+
+        final long[] grams = postingLists.keySet()
+                                         .stream()
+                                         .mapToLong(Long::longValue)
+                                         .sorted()
+                                         .toArray();
+        final int[][] postings = new int[grams.length][];
+        for (int index = 0; index < grams.length; index++) {
+            postings[index] = postingLists.get(grams[index]).toArray();
+        }
+
+        return new NameIndex(lowerCaseNames, grams, postings);
+    }
+
+    /**
+     * Returns the ascending ordinals of the products whose name contains the given text, ignoring the case
+     */
+    public int[] search(final String text) {
+        final String query = text.toLowerCase(Locale.ROOT);
+        if (query.length() < GRAM_LENGTH) {
+            // too short to have any gram, so all the names are candidates
+            return verify(null, query);
+        }
+
+        final int gramsCount = query.length() - GRAM_LENGTH + 1;
+        final int[][] queryPostings = new int[gramsCount][];
+        for (int index = 0; index < gramsCount; index++) {
+            final int position = Arrays.binarySearch(grams, gram(query, index));
+            if (position < 0) {
+                return NO_ORDINALS;
+            }
+            queryPostings[index] = postings[position];
+        }
+
+        // intersecting the shortest lists first keeps the intermediate results small
+        Arrays.sort(queryPostings, (first, second) -> Integer.compare(first.length, second.length));
+        int[] candidates = queryPostings[0];
+        for (int index = 1; index < gramsCount && candidates.length > 0; index++) {
+            candidates = intersect(candidates, queryPostings[index]);
+        }
+
+        return verify(candidates, query);
+    }
+
+    /**
+     * Returns true if the name of the product with the given ordinal contains the given lower case text
+     */
+    public boolean contains(final int ordinal, final String lowerCaseText) {
+        return lowerCaseNames[ordinal].contains(lowerCaseText);
+    }
+
+    private int[] verify(final int[] candidates, final String query) {
+        final int candidatesCount = candidates != null ? candidates.length : lowerCaseNames.length;
+        final int[] matches = new int[candidatesCount];
+        int count = 0;
+        for (int index = 0; index < candidatesCount; index++) {
+            final int ordinal = candidates != null ? candidates[index] : index;
+            if (lowerCaseNames[ordinal].contains(query)) {
+                matches[count++] = ordinal;
+            }
+        }
+        return count == matches.length ? matches : Arrays.copyOf(matches, count);
+    }
+
+    private static int[] intersect(final int[] first, final int[] second) {
+        final int[] result = new int[Math.min(first.length, second.length)];
+        int count = 0;
+        for (int i = 0, j = 0; i < first.length && j < second.length; ) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                result[count++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static long gram(final String value, final int index) {
+        return (long) value.charAt(index) << 32 | (long) value.charAt(index + 1) << 16 | value.charAt(index + 2);
+    }
+
+    /**
+     * A growable list of ascending ordinals; a name containing the same gram twice is only added once
+     */
+    private static final class PostingList {
+
+        private int[] ordinals = new int[4];
+        private int size;
+
+        void add(final int ordinal) {
+            if (size > 0 && ordinals[size - 1] == ordinal) {
+                return;
+            }
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = ordinal;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ordinals, size);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.oce.java8.training.catalog;
+
+import com.oce.java8.training.model.Product;
+import com.oce.java8.training.model.StoreSection;
+
+import java.util.Arrays;
+
+/**
+ * A sorted index of the {@link Product} prices, which answers range and threshold queries with binary searches.
+ * <p>
+ * The product ordinals are sorted by price twice: once globally and once within each {@link StoreSection} (whose
+ * rows are contiguous in the {@link ProductColumns}). All the queries return product ordinals, without boxing.
+ */
+public final class PriceIndex {
+
+    private final ProductColumns columns;
+
+    // the ordinals sorted by price, and their prices on the same position
+    private final int[] ordinals;
+    private final double[] prices;
+
+    // the ordinals sorted by price within each section; the section range is the one from the columns
+    private final int[] sectionOrdinals;
+    private final double[] sectionPrices;
+
+    private PriceIndex(final ProductColumns columns) {
+        this.columns = columns;
+
+        this.ordinals = columns.ordinals().toArray();
+        sortByPrice(ordinals, 0, ordinals.length, columns);
+        this.prices = pricesOf(ordinals, columns);
+
+        this.sectionOrdinals = columns.ordinals().toArray();
+        for (final StoreSection section : StoreSection.values()) {
+            sortByPrice(sectionOrdinals, columns.sectionStart(section), columns.sectionEnd(section), columns);
+        }
+        this.sectionPrices = pricesOf(sectionOrdinals, columns);
+    }
+
+    public static PriceIndex of(final ProductColumns columns) {
+        return new PriceIndex(columns);
+    }
+
+    /**
+     * Returns the ordinals of the products with a price in [min, max], sorted by price
+     */
+    public int[] range(final double min, final double max) {
+        final int from = lowerBound(prices, 0, prices.length, min);
+        return Arrays.copyOfRange(ordinals, from, Math.max(from, upperBound(prices, 0, prices.length, max)));
+    }
+
+    public int[] greaterThan(final double price) {
+        return Arrays.copyOfRange(ordinals, upperBound(prices, 0, prices.length, price), prices.length);
+    }
+
+    public int[] lessThan(final double price) {
+        return Arrays.copyOfRange(ordinals, 0, lowerBound(prices, 0, prices.length, price));
+    }
+
+    public int countGreaterThan(final double price) {
+        return prices.length - upperBound(prices, 0, prices.length, price);
+    }
+
+    /**
+     * Returns the ordinals of the products from the given section with a price in [min, max], sorted by price
+     */
+    public int[] range(final StoreSection section, final double min, final double max) {
+        final int start = columns.sectionStart(section);
+        final int end = columns.sectionEnd(section);
+        final int from = lowerBound(sectionPrices, start, end, min);
+        return Arrays.copyOfRange(sectionOrdinals, from, Math.max(from, upperBound(sectionPrices, start, end, max)));
+    }
+
+    public int[] greaterThan(final StoreSection section, final double price) {
+        final int start = columns.sectionStart(section);
+        final int end = columns.sectionEnd(section);
+        return Arrays.copyOfRange(sectionOrdinals, upperBound(sectionPrices, start, end, price), end);
+    }
+
+    public int[] lessThan(final StoreSection section, final double price) {
+        final int start = columns.sectionStart(section);
+        final int end = columns.sectionEnd(section);
+        return Arrays.copyOfRange(sectionOrdinals, start, lowerBound(sectionPrices, start, end, price));
+    }
+
+    // the first position in [from, to) whose price is >= the given price
+    private static int lowerBound(final double[] sortedPrices, final int from, final int to, final double price) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (sortedPrices[middle] < price) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // the first position in [from, to) whose price is > the given price
+    private static int upperBound(final double[] sortedPrices, final int from, final int to, final double price) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (sortedPrices[middle] <= price) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static double[] pricesOf(final int[] ordinals, final ProductColumns columns) {
+        final double[] prices = new double[ordinals.length];
+        for (int index = 0; index < ordinals.length; index++) {
+            prices[index] = columns.getPrice(ordinals[index]);
+        }
+        return prices;
+    }
+
+    /**
+     * A stable merge sort of the ordinals in [from, to), by their price
+     */
+    private static void sortByPrice(final int[] ordinals, final int from, final int to, final ProductColumns columns) {
+        if (to - from < 2) {
+            return;
+        }
+
+        final int[] buffer = new int[to - from];
+        for (int width = 1; width < to - from; width *= 2) {
+            for (int left = from; left < to - width; left += 2 * width) {
+                final int middle = left + width;
+                final int right = Math.min(middle + width, to);
+
+                int i = left;
+                int j = middle;
+                int k = 0;
+                while (i < middle && j < right) {
+                    buffer[k++] = columns.getPrice(ordinals[j]) < columns.getPrice(ordinals[i]) ? ordinals[j++]
+                                                                                                 : ordinals[i++];
+                }
+                while (i < middle) {
+                    buffer[k++] = ordinals[i++];
+                }
+                while (j < right) {
+                    buffer[k++] = ordinals[j++];
+                }
+                System.arraycopy(buffer, 0, ordinals, left, k);
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.oce.java8.training.catalog;
+
+import com.oce.java8.training.model.Discount;
+import com.oce.java8.training.model.Product;
+import com.oce.java8.training.model.StoreSection;
+
+import java.util.stream.IntStream;
+
+/**
+ * Computes the effective (discounted) prices of the {@link Product}s.
+ * <p>
+ * A {@link Discount.Type#Percent} discount takes the given percent off the price, while a {@link Discount.Type#Value}
+ * discount subtracts the given value from it; an effective price is never negative. The batch operations read the
+ * {@link ProductColumns} (so no {@link java.util.Optional} is unwrapped) and write into primitive arrays, splitting
+ * the work across the available cores.
+ */
+public final class PricingEngine {
+
+    // below this size, the fork / join overhead is bigger than the pricing itself
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    private PricingEngine() {
+    }
+
+    /**
+     * The allocation-free single product path
+     */
+    public static double effectivePrice(final double price, final Discount.Type discountType, final int discountValue) {
+        if (discountType == null) {
+            return price;
+        }
+
+        final double discounted = discountType == Discount.Type.Percent ? price * (100 - discountValue) / 100
+                                                                        : price - discountValue;
+        return Math.max(discounted, 0);
+    }
+
+    public static double effectivePrice(final ProductColumns columns, final int ordinal) {
+        return effectivePrice(columns.getPrice(ordinal), columns.getDiscountType(ordinal),
+                              columns.getDiscountValue(ordinal));
+    }
+
+    public static double effectivePrice(final Product product) {
+        final Discount discount = product.getDiscount().orElse(null);
+        return discount != null ? effectivePrice(product.getPrice(), discount.getDiscountType(), discount.getValue())
+                                : product.getPrice();
+    }
+
+    /**
+     * Returns the effective prices of all the products, indexed by their ordinal
+     */
+    public static double[] effectivePrices(final ProductColumns columns) {
+        final double[] prices = new double[columns.size()];
+        effectivePrices(columns, 0, columns.size(), prices, 0);
+        return prices;
+    }
+
+    /**
+     * Writes the effective prices of the given section products in the output array, starting from the given offset
+     *
+     * @return the number of written prices
+     */
+    public static int effectivePrices(final ProductColumns columns, final StoreSection section, final double[] output,
+                                      final int offset) {
+        final int start = columns.sectionStart(section);
+        final int end = columns.sectionEnd(section);
+        effectivePrices(columns, start, end, output, offset);
+        return end - start;
+    }
+
+    /**
+     * Writes the effective prices of the products with an ordinal in [from, to) in the output array, starting from the
+     * given offset
+     */
+    public static void effectivePrices(final ProductColumns columns, final int from, final int to,
+                                       final double[] output, final int offset) {
+        if (to - from > output.length - offset) {
+            throw new IllegalArgumentException("The output array is too small");
+        }
+
+        IntStream range = IntStream.range(from, to);
+        if (to - from >= PARALLEL_THRESHOLD) {
+            range = range.parallel();
+        }
+        range.forEach(ordinal -> output[offset + ordinal - from] = effectivePrice(columns, ordinal));
+    }
+}
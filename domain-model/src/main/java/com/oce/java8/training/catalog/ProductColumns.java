@@ -0,0 +1,223 @@
+package com.oce.java8.training.catalog;
+
+import com.oce.java8.training.model.Discount;
+import com.oce.java8.training.model.Product;
+import com.oce.java8.training.model.Section;
+import com.oce.java8.training.model.Store;
+import com.oce.java8.training.model.StoreSection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+
+/**
+ * A read-only, columnar (struct-of-arrays) snapshot of all the {@link Product}s from a {@link Store}.
+ * <p>
+ * Every product gets an ordinal, which is its row in the parallel primitive arrays. The products are laid out
+ * grouped by {@link StoreSection}, so that the rows of a section are contiguous.
+ */
+public final class ProductColumns {
+
+    private static final byte NO_DISCOUNT = -1;
+
+    private static final Discount.Type[] DISCOUNT_TYPES = Discount.Type.values();
+
+    private static final StoreSection[] STORE_SECTIONS = StoreSection.values();
+
+    private final int[] ids;
+    private final double[] prices;
+    private final byte[] sectionOrdinals;
+    private final int[] discountValues;
+    private final byte[] discountTypes;
+
+    // the reference columns are kept to the side, as they are not used in the primitive scans
+    private final String[] names;
+    private final List<?>[] tags;
+    private final Product[] products;
+
+    // the [start, end) rows of each StoreSection, indexed by the StoreSection ordinal
+    private final int[] sectionStarts;
+    private final int[] sectionEnds;
+
+    private ProductColumns(final int size) {
+        this.ids = new int[size];
+        this.prices = new double[size];
+        this.sectionOrdinals = new byte[size];
+        this.discountValues = new int[size];
+        this.discountTypes = new byte[size];
+        this.names = new String[size];
+        this.tags = new List<?>[size];
+        this.products = new Product[size];
+        this.sectionStarts = new int[STORE_SECTIONS.length];
+        this.sectionEnds = new int[STORE_SECTIONS.length];
+    }
+
+    public static ProductColumns of(final Store store) {
+        final List<Section> sections = new ArrayList<>(store.getStoreSections());
+        sections.sort(Comparator.comparing(Section::getName)
+                                .thenComparingInt(Section::getId));
+
+        final int size = sections.stream()
+                                 .mapToInt(section -> getProducts(section).size())
+                                 .sum();
+
+        final ProductColumns columns = new ProductColumns(size);
+        int row = 0;
+        for (final Section section : sections) {
+            final int sectionOrdinal = section.getName().ordinal();
+            if (columns.sectionEnds[sectionOrdinal] == 0) {
+                columns.sectionStarts[sectionOrdinal] = row;
+            }
+
+            for (final Product product : getProducts(section)) {
+                columns.set(row++, sectionOrdinal, product);
+            }
+            columns.sectionEnds[sectionOrdinal] = row;
+        }
+
+        return columns;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public int getId(final int ordinal) {
+        return ids[ordinal];
+    }
+
+    public double getPrice(final int ordinal) {
+        return prices[ordinal];
+    }
+
+    public StoreSection getSection(final int ordinal) {
+        return STORE_SECTIONS[sectionOrdinals[ordinal]];
+    }
+
+    public boolean hasDiscount(final int ordinal) {
+        return discountTypes[ordinal] != NO_DISCOUNT;
+    }
+
+    /**
+     * Returns the discount value of the product, or 0 if the product has no discount
+     */
+    public int getDiscountValue(final int ordinal) {
+        return discountValues[ordinal];
+    }
+
+    /**
+     * Returns the discount type of the product, or null if the product has no discount
+     */
+    public Discount.Type getDiscountType(final int ordinal) {
+        final byte discountType = discountTypes[ordinal];
+        return discountType == NO_DISCOUNT ? null : DISCOUNT_TYPES[discountType];
+    }
+
+    public String getName(final int ordinal) {
+        return names[ordinal];
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<String> getTags(final int ordinal) {
+        final List<String> productTags = (List<String>) tags[ordinal];
+        return productTags != null ? productTags : Collections.emptyList();
+    }
+
+    public Product getProduct(final int ordinal) {
+        return products[ordinal];
+    }
+
+    /**
+     * Returns the products with the given ordinals, in the same order
+     */
+    public List<Product> getProducts(final int[] ordinals) {
+        final List<Product> selected = new ArrayList<>(ordinals.length);
+        for (final int ordinal : ordinals) {
+            selected.add(products[ordinal]);
+        }
+        return selected;
+    }
+
+    /**
+     * Returns the first row of the given section; the rows of a section are in [start, end)
+     */
+    public int sectionStart(final StoreSection section) {
+        return sectionStarts[section.ordinal()];
+    }
+
+    public int sectionEnd(final StoreSection section) {
+        return sectionEnds[section.ordinal()];
+    }
+
+    public IntStream ordinals() {
+        return IntStream.range(0, size());
+    }
+
+    public IntStream ordinals(final StoreSection section) {
+        return IntStream.range(sectionStart(section), sectionEnd(section));
+    }
+
+    public DoubleStream prices() {
+        return DoubleStream.of(prices);
+    }
+
+    /**
+     * Returns the ordinals of the rows which match the given predicate, in ascending order
+     */
+    public int[] select(final IntPredicate rowPredicate) {
+        final int[] selected = new int[size()];
+        int count = 0;
+        for (int ordinal = 0; ordinal < selected.length; ordinal++) {
+            if (rowPredicate.test(ordinal)) {
+                selected[count++] = ordinal;
+            }
+        }
+
+        return count == selected.length ? selected : Arrays.copyOf(selected, count);
+    }
+
+    public int countPricesAbove(final double price) {
+        int count = 0;
+        for (final double value : prices) {
+            if (value > price) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public double sumPrices(final StoreSection section) {
+        double sum = 0;
+        for (int ordinal = sectionStart(section), end = sectionEnd(section); ordinal < end; ordinal++) {
+            sum += prices[ordinal];
+        }
+        return sum;
+    }
+
+    private void set(final int row, final int sectionOrdinal, final Product product) {
+        ids[row] = product.getId();
+        prices[row] = product.getPrice();
+        sectionOrdinals[row] = (byte) sectionOrdinal;
+        names[row] = product.getName();
+        tags[row] = product.getTags().orElse(null);
+        products[row] = product;
+
+        final Discount discount = product.getDiscount().orElse(null);
+        if (discount != null) {
+            discountValues[row] = discount.getValue();
+            discountTypes[row] = (byte) discount.getDiscountType().ordinal();
+        } else {
+            discountTypes[row] = NO_DISCOUNT;
+        }
+    }
+
+    private static List<Product> getProducts(final Section section) {
+        return section.getProducts()
+                      .orElse(Collections.emptyList());
+    }
+}
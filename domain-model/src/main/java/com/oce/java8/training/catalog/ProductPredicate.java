@@ -0,0 +1,319 @@
+package com.oce.java8.training.catalog;
+
+import com.oce.java8.training.model.Product;
+import com.oce.java8.training.model.StoreSection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * A tree of {@link Product} predicates which, unlike a composed {@link Predicate}, can be inspected by the
+ * {@link QueryPlanner}: each leaf knows its (relative) evaluation cost and how to estimate its selectivity from the
+ * catalog statistics, so the planner can reorder the {@link #and} / {@link #or} chains and pick an index for them.
+ */
+public abstract class ProductPredicate {
+
+    // the relative costs of evaluating the leaves on a single product
+    static final double COLUMN_COST = 1;
+    static final double TAG_COST = 4;
+    static final double NAME_COST = 25;
+    static final double CUSTOM_COST = 10;
+
+    ProductPredicate() {
+    }
+
+    public static ProductPredicate inSection(final StoreSection section) {
+        Objects.requireNonNull(section, "The section is required");
+        return new SectionLeaf(section);
+    }
+
+    public static ProductPredicate priceGreaterThan(final double price) {
+        return new PriceLeaf(price, Double.POSITIVE_INFINITY, false, "price > " + price);
+    }
+
+    public static ProductPredicate priceLessThan(final double price) {
+        return new PriceLeaf(Double.NEGATIVE_INFINITY, price, false, "price < " + price);
+    }
+
+    /**
+     * Matches the prices in the given (inclusive) range
+     */
+    public static ProductPredicate priceBetween(final double min, final double max) {
+        return new PriceLeaf(min, max, true, "price in [" + min + ", " + max + "]");
+    }
+
+    public static ProductPredicate hasDiscount() {
+        return new Leaf("has discount", COLUMN_COST) {
+            @Override
+            IntPredicate bind(final StoreIndex index) {
+                return index.getColumns()::hasDiscount;
+            }
+
+            @Override
+            Estimate estimate(final QueryPlanner.Scope scope) {
+                return scope.count(this);
+            }
+        };
+    }
+
+    public static ProductPredicate hasTag(final String tag) {
+        Objects.requireNonNull(tag, "The tag is required");
+        return new Leaf("tag = '" + tag + "'", TAG_COST) {
+            @Override
+            IntPredicate bind(final StoreIndex index) {
+                final ProductColumns columns = index.getColumns();
+                return ordinal -> columns.getTags(ordinal).contains(tag);
+            }
+
+            @Override
+            Estimate estimate(final QueryPlanner.Scope scope) {
+                return scope.countTagged(tag);
+            }
+        };
+    }
+
+    /**
+     * Matches the products whose name contains the given text, ignoring the case
+     */
+    public static ProductPredicate nameContains(final String text) {
+        final String lowerCaseText = text.toLowerCase(Locale.ROOT);
+        return new Leaf("name contains '" + text + "'", NAME_COST) {
+            @Override
+            IntPredicate bind(final StoreIndex index) {
+                final NameIndex nameIndex = index.getNameIndex();
+                return ordinal -> nameIndex.contains(ordinal, lowerCaseText);
+            }
+
+            @Override
+            Estimate estimate(final QueryPlanner.Scope scope) {
+                return scope.sample(this);
+            }
+        };
+    }
+
+    /**
+     * Wraps an opaque predicate, whose selectivity is estimated on a sample of the products
+     */
+    public static ProductPredicate matching(final String description, final Predicate<Product> predicate) {
+        return matching(description, predicate, CUSTOM_COST, Double.NaN);
+    }
+
+    /**
+     * Wraps an opaque predicate, with a known relative cost and selectivity (NaN to estimate it on a sample)
+     */
+    public static ProductPredicate matching(final String description, final Predicate<Product> predicate,
+                                            final double cost, final double selectivity) {
+        Objects.requireNonNull(predicate, "The predicate is required");
+        return new Leaf(description, cost) {
+            @Override
+            IntPredicate bind(final StoreIndex index) {
+                final ProductColumns columns = index.getColumns();
+                return ordinal -> predicate.test(columns.getProduct(ordinal));
+            }
+
+            @Override
+            Estimate estimate(final QueryPlanner.Scope scope) {
+                return Double.isNaN(selectivity) ? scope.sample(this) : new Estimate(selectivity, false);
+            }
+        };
+    }
+
+    public static ProductPredicate allOf(final ProductPredicate... predicates) {
+        return new And(flatten(And.class, predicates));
+    }
+
+    public static ProductPredicate anyOf(final ProductPredicate... predicates) {
+        return new Or(flatten(Or.class, predicates));
+    }
+
+    public ProductPredicate and(final ProductPredicate other) {
+        return allOf(this, other);
+    }
+
+    public ProductPredicate or(final ProductPredicate other) {
+        return anyOf(this, other);
+    }
+
+    public ProductPredicate negate() {
+        return this instanceof Not ? ((Not) this).child : new Not(this);
+    }
+
+    // the nested chains of the same kind are merged, so the planner can reorder all their operands together
+    private static List<ProductPredicate> flatten(final Class<? extends Composite> kind,
+                                                  final ProductPredicate... predicates) {
+        if (predicates.length == 0) {
+            throw new IllegalArgumentException("At least a predicate is required");
+        }
+
+        final List<ProductPredicate> operands = new ArrayList<>();
+        for (final ProductPredicate predicate : predicates) {
+            Objects.requireNonNull(predicate, "The predicates cannot be null");
+            if (kind.isInstance(predicate)) {
+                operands.addAll(((Composite) predicate).children);
+            } else {
+                operands.add(predicate);
+            }
+        }
+        return Collections.unmodifiableList(operands);
+    }
+
+    /**
+     * The estimated fraction of the products which match a predicate; it is exact if it was computed from the
+     * catalog statistics instead of a sample
+     */
+    static final class Estimate {
+
+        final double selectivity;
+        final boolean exact;
+
+        Estimate(final double selectivity, final boolean exact) {
+            this.selectivity = Math.max(0, Math.min(1, selectivity));
+            this.exact = exact;
+        }
+    }
+
+    abstract static class Leaf extends ProductPredicate {
+
+        final String description;
+        final double cost;
+
+        Leaf(final String description, final double cost) {
+            this.description = description;
+            this.cost = cost;
+        }
+
+        /**
+         * Returns the test of this predicate on the product ordinals of the given catalog
+         */
+        abstract IntPredicate bind(StoreIndex index);
+
+        abstract Estimate estimate(QueryPlanner.Scope scope);
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    static final class SectionLeaf extends Leaf {
+
+        final StoreSection section;
+
+        SectionLeaf(final StoreSection section) {
+            super("section = " + section, COLUMN_COST);
+            this.section = section;
+        }
+
+        @Override
+        IntPredicate bind(final StoreIndex index) {
+            final ProductColumns columns = index.getColumns();
+            return ordinal -> columns.getSection(ordinal) == section;
+        }
+
+        @Override
+        Estimate estimate(final QueryPlanner.Scope scope) {
+            return scope.countInSection(section);
+        }
+    }
+
+    static final class PriceLeaf extends Leaf {
+
+        final double min;
+        final double max;
+        final boolean inclusive;
+
+        PriceLeaf(final double min, final double max, final boolean inclusive, final String description) {
+            super(description, COLUMN_COST);
+            this.min = min;
+            this.max = max;
+            this.inclusive = inclusive;
+        }
+
+        @Override
+        IntPredicate bind(final StoreIndex index) {
+            final ProductColumns columns = index.getColumns();
+            return inclusive
+                    ? ordinal -> columns.getPrice(ordinal) >= min && columns.getPrice(ordinal) <= max
+                    : ordinal -> columns.getPrice(ordinal) > min && columns.getPrice(ordinal) < max;
+        }
+
+        @Override
+        Estimate estimate(final QueryPlanner.Scope scope) {
+            return new Estimate((double) candidates(scope.getIndex().getPriceIndex(), scope.getSection()).length /
+                                        Math.max(1, scope.getRowsCount()), true);
+        }
+
+        /**
+         * Returns the (price ordered) ordinals of the products which match this predicate, through the price index
+         */
+        int[] candidates(final PriceIndex priceIndex, final StoreSection section) {
+            if (inclusive) {
+                return section != null ? priceIndex.range(section, min, max) : priceIndex.range(min, max);
+            }
+            if (max == Double.POSITIVE_INFINITY) {
+                return section != null ? priceIndex.greaterThan(section, min) : priceIndex.greaterThan(min);
+            }
+            return section != null ? priceIndex.lessThan(section, max) : priceIndex.lessThan(max);
+        }
+    }
+
+    abstract static class Composite extends ProductPredicate {
+
+        final List<ProductPredicate> children;
+
+        Composite(final List<ProductPredicate> children) {
+            this.children = children;
+        }
+
+        String join(final String operator) {
+            final StringBuilder text = new StringBuilder("(");
+            for (int index = 0; index < children.size(); index++) {
+                text.append(index > 0 ? operator : "").append(children.get(index));
+            }
+            return text.append(')').toString();
+        }
+    }
+
+    static final class And extends Composite {
+
+        And(final List<ProductPredicate> children) {
+            super(children);
+        }
+
+        @Override
+        public String toString() {
+            return join(" AND ");
+        }
+    }
+
+    static final class Or extends Composite {
+
+        Or(final List<ProductPredicate> children) {
+            super(children);
+        }
+
+        @Override
+        public String toString() {
+            return join(" OR ");
+        }
+    }
+
+    static final class Not extends ProductPredicate {
+
+        final ProductPredicate child;
+
+        Not(final ProductPredicate child) {
+            this.child = child;
+        }
+
+        @Override
+        public String toString() {
+            return "NOT " + child;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.oce.java8.training.catalog;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A bounded, least recently used cache of catalog query results, keyed by their {@link QueryKey}.
+ * <p>
+ * Every entry is tagged with the catalog version it was computed for; once the catalog version changes (the store
+ * is replaced or mutated), the entries of the previous versions are dropped and the queries are recomputed. The
+ * cached results are shared by all the callers, so they should be immutable.
+ */
+public final class QueryCache {
+
+    private final LongSupplier catalogVersion;
+
+    // guarded by itself
+    private final LeastRecentlyUsedMap entries;
+    private long latestVersion;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param maxSize        the maximum number of cached results
+     * @param catalogVersion the supplier of the current catalog version
+     */
+    public QueryCache(final int maxSize, final LongSupplier catalogVersion) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("The cache size must be positive");
+        }
+
+        this.catalogVersion = catalogVersion;
+        this.entries = new LeastRecentlyUsedMap(maxSize);
+    }
+
+    /**
+     * Returns the cached result of the given query, running it if it isn't cached for the current catalog version.
+     * The same key must always be used for queries with the same result type.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(final QueryKey key, final Supplier<T> query) {
+        final long version = catalogVersion.getAsLong();
+        synchronized (entries) {
+            dropOlderVersions(version);
+            final CachedResult cached = entries.get(key);
+            if (cached != null && cached.version == version) {
+                hits.increment();
+                return (T) cached.result;
+            }
+        }
+
+        // the query runs outside the lock; if the catalog changes meanwhile, its result is tagged with the old version
+        misses.increment();
+        final T result = query.get();
+        synchronized (entries) {
+            dropOlderVersions(version);
+            if (version == latestVersion) {
+                entries.put(key, new CachedResult(version, result));
+            }
+        }
+        return result;
+    }
+
+    public void invalidate() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "QueryCache{size=" + size() + ", hits=" + getHits() + ", misses=" + getMisses() + "}";
+    }
+
+    private void dropOlderVersions(final long version) {
+        if (version > latestVersion) {
+            entries.clear();
+            latestVersion = version;
+        }
+    }
+
+    private static final class CachedResult {
+
+        private final long version;
+        private final Object result;
+
+        CachedResult(final long version, final Object result) {
+            this.version = version;
+            this.result = result;
+        }
+    }
+
+    /**
+     * A map which keeps its entries in their access order and drops the least recently used one when it is full
+     */
+    private static final class LeastRecentlyUsedMap extends LinkedHashMap<QueryKey, CachedResult> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        LeastRecentlyUsedMap(final int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<QueryKey, CachedResult> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.oce.java8.training.catalog;
+
+import com.oce.java8.training.model.StoreSection;
+
+import java.util.Objects;
+
+/**
+ * The descriptor of a cached catalog query: the queried section (or null, for the whole catalog), the spec of its
+ * predicate and the projection of its result
+ */
+public final class QueryKey {
+
+    private final StoreSection section;
+    private final String predicate;
+    private final String projection;
+
+    private final int hash;
+
+    public QueryKey(final StoreSection section, final String predicate, final String projection) {
+        this.section = section;
+        this.predicate = Objects.requireNonNull(predicate, "The predicate spec is required");
+        this.projection = Objects.requireNonNull(projection, "The projection is required");
+        this.hash = 31 * (31 * Objects.hashCode(section) + predicate.hashCode()) + projection.hashCode();
+    }
+
+    public StoreSection getSection() {
+        return section;
+    }
+
+    public String getPredicate() {
+        return predicate;
+    }
+
+    public String getProjection() {
+        return projection;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final QueryKey other = (QueryKey) o;
+        return hash == other.hash &&
+                section == other.section &&
+                predicate.equals(other.predicate) &&
+                projection.equals(other.projection);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return (section != null ? section : "*") + " [" + predicate + "] -> " + projection;
+    }
+}
@@ -0,0 +1,111 @@
+package com.oce.java8.training.catalog;
+
+import com.oce.java8.training.catalog.QueryPlanner.PlannedNode;
+import com.oce.java8.training.model.Product;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link ProductPredicate} planned by the {@link QueryPlanner}: the access path to the candidate products (a scan
+ * of a range of rows or the ordinals returned by an index) and the reordered filter which runs on each candidate.
+ * The chosen plan and its estimates are reported by {@link #explain()}.
+ */
+public final class QueryPlan {
+
+    private static final int[] NO_ORDINALS = new int[0];
+
+    private final ProductPredicate predicate;
+    private final StoreIndex index;
+    private final String accessPath;
+
+    // the candidate ordinals or, if null, the [from, to) range of scanned rows
+    private final int[] candidates;
+    private final int from;
+    private final int to;
+
+    private final PlannedNode filter;
+
+    QueryPlan(final ProductPredicate predicate, final StoreIndex index, final String accessPath,
+              final int[] candidates, final int from, final int to, final PlannedNode filter) {
+        this.predicate = predicate;
+        this.index = index;
+        this.accessPath = accessPath;
+        this.candidates = candidates;
+        this.from = from;
+        this.to = to;
+        this.filter = filter;
+    }
+
+    /**
+     * Returns the ordinals (in the {@link ProductColumns} of the catalog) of the matching products, in ascending order
+     */
+    public int[] executeOrdinals() {
+        if (filter.isConstant(false)) {
+            return NO_ORDINALS;
+        }
+
+        if (candidates != null) {
+            final int[] sortedCandidates = candidates.clone();
+            Arrays.sort(sortedCandidates);
+            return Arrays.stream(sortedCandidates)
+                         .filter(filter::test)
+                         .toArray();
+        }
+
+        int[] matches = new int[16];
+        int count = 0;
+        for (int ordinal = from; ordinal < to; ordinal++) {
+            if (filter.test(ordinal)) {
+                if (count == matches.length) {
+                    matches = Arrays.copyOf(matches, count * 2);
+                }
+                matches[count++] = ordinal;
+            }
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    public List<Product> execute() {
+        return index.getColumns().getProducts(executeOrdinals());
+    }
+
+    /**
+     * Returns the estimated number of matching products
+     */
+    public double getEstimatedRows() {
+        return getCandidatesCount() * filter.selectivity;
+    }
+
+    /**
+     * Returns the estimated (relative) cost of running the plan
+     */
+    public double getEstimatedCost() {
+        return getCandidatesCount() * filter.cost;
+    }
+
+    /**
+     * Describes the access path and the order in which the conditions are evaluated, with their estimates
+     */
+    public String explain() {
+        final StringBuilder text = new StringBuilder();
+        text.append("Plan of ").append(predicate).append(System.lineSeparator())
+            .append("  access: ").append(accessPath).append(System.lineSeparator())
+            .append(String.format("  estimated: %.1f products, cost %.1f", getEstimatedRows(), getEstimatedCost()))
+            .append(System.lineSeparator());
+        if (!filter.isConstant(true) && !filter.isConstant(false)) {
+            text.append("  filter:").append(System.lineSeparator());
+            filter.describe(text, "    ");
+        }
+        return text.toString();
+    }
+
+    @Override
+    public String toString() {
+        return explain();
+    }
+
+    private int getCandidatesCount() {
+        return candidates != null ? candidates.length : to - from;
+    }
+}
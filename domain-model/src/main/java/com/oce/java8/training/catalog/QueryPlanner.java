@@ -0,0 +1,340 @@
+package com.oce.java8.training.catalog;
+
+import com.oce.java8.training.catalog.ProductPredicate.And;
+import com.oce.java8.training.catalog.ProductPredicate.Composite;
+import com.oce.java8.training.catalog.ProductPredicate.Estimate;
+import com.oce.java8.training.catalog.ProductPredicate.Leaf;
+import com.oce.java8.training.catalog.ProductPredicate.Not;
+import com.oce.java8.training.catalog.ProductPredicate.PriceLeaf;
+import com.oce.java8.training.catalog.ProductPredicate.SectionLeaf;
+import com.oce.java8.training.model.StoreSection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Turns a {@link ProductPredicate} tree into a {@link QueryPlan}, using the statistics of a {@link StoreIndex}.
+ * <p>
+ * The selectivity of each leaf is computed from the catalog indexes (the section bounds, the price and the tag
+ * indexes) or, for the name and the opaque predicates, estimated on a sample of the products. The operands of every
+ * AND are then ordered by {@code cost / (1 - selectivity)} and the operands of every OR by
+ * {@code cost / selectivity}, so the cheap and selective checks run first and the expensive ones only see the
+ * products which survive them. The operands which are known to be always true or always false are folded, a
+ * section condition restricts the scan to the rows of the section and a selective price condition is answered
+ * through the price index.
+ */
+public final class QueryPlanner {
+
+    // the number of products on which the sampled selectivities are estimated
+    private static final int SAMPLE_SIZE = 256;
+
+    // a price condition which keeps at most this fraction of the scanned rows is answered through the price index
+    private static final double PRICE_INDEX_SELECTIVITY = 0.2;
+
+    private final StoreIndex index;
+
+    public QueryPlanner(final StoreIndex index) {
+        this.index = index;
+    }
+
+    public QueryPlan plan(final ProductPredicate predicate) {
+        final ProductColumns columns = index.getColumns();
+
+        // a top level section condition restricts the scanned rows
+        final List<ProductPredicate> conjuncts = predicate instanceof And
+                ? ((And) predicate).children
+                : Collections.singletonList(predicate);
+        StoreSection section = null;
+        for (final ProductPredicate conjunct : conjuncts) {
+            if (conjunct instanceof SectionLeaf) {
+                // a second, different section is always false in the scope of the first one
+                section = section != null ? section : ((SectionLeaf) conjunct).section;
+            }
+        }
+
+        final Scope scope = section != null
+                ? new Scope(index, section, columns.sectionStart(section), columns.sectionEnd(section))
+                : new Scope(index, null, 0, columns.size());
+        final PlannedNode filter = plan(predicate, scope);
+
+        if (filter.isConstant(false)) {
+            return new QueryPlan(predicate, index, "nothing (the predicate is never true)", null, 0, 0, filter);
+        }
+
+        // a selective price condition is answered through the price index, instead of a scan
+        final PlannedNode priceCondition = findIndexablePrice(filter);
+        if (priceCondition != null) {
+            final int[] candidates = ((PriceLeaf) priceCondition.predicate).candidates(index.getPriceIndex(), section);
+            final PlannedNode residual = filter.without(priceCondition);
+            return new QueryPlan(predicate, index, "price index (" + priceCondition.predicate + ") in " +
+                    scope.describe() + ", " + candidates.length + " candidates", candidates, 0, 0, residual);
+        }
+
+        return new QueryPlan(predicate, index, "scan of " + scope.describe() + ", " + scope.getRowsCount() + " rows",
+                             null, scope.from, scope.to, filter);
+    }
+
+    private PlannedNode plan(final ProductPredicate predicate, final Scope scope) {
+        if (predicate instanceof Leaf) {
+            final Leaf leaf = (Leaf) predicate;
+            final Estimate estimate = leaf.estimate(scope);
+            return PlannedNode.leaf(leaf, leaf.bind(index), leaf.cost, estimate.selectivity, estimate.exact);
+        }
+        if (predicate instanceof Not) {
+            final PlannedNode child = plan(((Not) predicate).child, scope);
+            if (child.kind == PlannedNode.Kind.CONSTANT) {
+                return PlannedNode.constant(child.selectivity == 0);
+            }
+            return new PlannedNode(PlannedNode.Kind.NOT, predicate, null, Collections.singletonList(child),
+                                   child.cost, 1 - child.selectivity, child.exact);
+        }
+
+        final boolean conjunction = predicate instanceof And;
+        final List<PlannedNode> children = new ArrayList<>();
+        for (final ProductPredicate child : ((Composite) predicate).children) {
+            final PlannedNode plannedChild = plan(child, scope);
+            if (plannedChild.isConstant(!conjunction)) {
+                // a false operand of an AND (or a true one of an OR) decides the result
+                return plannedChild;
+            }
+            if (!plannedChild.isConstant(conjunction)) {
+                children.add(plannedChild);
+            }
+        }
+        return PlannedNode.composite(conjunction, predicate, children);
+    }
+
+    private static PlannedNode findIndexablePrice(final PlannedNode filter) {
+        final List<PlannedNode> conjuncts = filter.kind == PlannedNode.Kind.AND
+                ? filter.children
+                : Collections.singletonList(filter);
+
+        PlannedNode best = null;
+        for (final PlannedNode conjunct : conjuncts) {
+            if (conjunct.predicate instanceof PriceLeaf && conjunct.selectivity <= PRICE_INDEX_SELECTIVITY &&
+                    (best == null || conjunct.selectivity < best.selectivity)) {
+                best = conjunct;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The rows which are considered by a plan: all the products or the products of a single section
+     */
+    static final class Scope {
+
+        private final StoreIndex index;
+        private final StoreSection section;
+        private final int from;
+        private final int to;
+
+        Scope(final StoreIndex index, final StoreSection section, final int from, final int to) {
+            this.index = index;
+            this.section = section;
+            this.from = from;
+            this.to = to;
+        }
+
+        StoreIndex getIndex() {
+            return index;
+        }
+
+        StoreSection getSection() {
+            return section;
+        }
+
+        int getRowsCount() {
+            return to - from;
+        }
+
+        Estimate countInSection(final StoreSection other) {
+            if (section != null) {
+                return new Estimate(section == other ? 1 : 0, true);
+            }
+            final ProductColumns columns = index.getColumns();
+            return fraction(columns.sectionEnd(other) - columns.sectionStart(other));
+        }
+
+        Estimate countTagged(final String tag) {
+            return fraction(index.getTagIndex().allOf(tag).get(from, to).cardinality());
+        }
+
+        /**
+         * Evaluates the given (cheap) predicate on all the rows
+         */
+        Estimate count(final Leaf leaf) {
+            final IntPredicate test = leaf.bind(index);
+            int matches = 0;
+            for (int ordinal = from; ordinal < to; ordinal++) {
+                matches += test.test(ordinal) ? 1 : 0;
+            }
+            return fraction(matches);
+        }
+
+        /**
+         * Evaluates the given predicate on (at most) {@link #SAMPLE_SIZE} evenly spread rows
+         */
+        Estimate sample(final Leaf leaf) {
+            final int rows = getRowsCount();
+            if (rows <= SAMPLE_SIZE) {
+                return count(leaf);
+            }
+
+            final IntPredicate test = leaf.bind(index);
+            int matches = 0;
+            for (int sample = 0; sample < SAMPLE_SIZE; sample++) {
+                matches += test.test(from + (int) ((long) sample * rows / SAMPLE_SIZE)) ? 1 : 0;
+            }
+            // no match in the sample doesn't mean that there are no matches at all
+            return new Estimate(Math.max(matches, 0.5) / SAMPLE_SIZE, false);
+        }
+
+        String describe() {
+            return section != null ? "the " + section + " section" : "all the sections";
+        }
+
+        private Estimate fraction(final int matches) {
+            return new Estimate(getRowsCount() > 0 ? (double) matches / getRowsCount() : 0, true);
+        }
+    }
+
+    /**
+     * A node of a planned predicate tree, with its (reordered) operands and its estimates
+     */
+    static final class PlannedNode {
+
+        enum Kind {
+            LEAF, AND, OR, NOT, CONSTANT
+        }
+
+        final Kind kind;
+        final ProductPredicate predicate;
+        final IntPredicate test;
+        final List<PlannedNode> children;
+
+        // the expected cost of evaluating the node on a row, and the fraction of the rows which match it
+        final double cost;
+        final double selectivity;
+        final boolean exact;
+
+        PlannedNode(final Kind kind, final ProductPredicate predicate, final IntPredicate test,
+                    final List<PlannedNode> children, final double cost, final double selectivity,
+                    final boolean exact) {
+            this.kind = kind;
+            this.predicate = predicate;
+            this.test = test;
+            this.children = children;
+            this.cost = cost;
+            this.selectivity = selectivity;
+            this.exact = exact;
+        }
+
+        static PlannedNode leaf(final Leaf leaf, final IntPredicate test, final double cost, final double selectivity,
+                                final boolean exact) {
+            if (exact && (selectivity == 0 || selectivity == 1)) {
+                return constant(selectivity == 1);
+            }
+            return new PlannedNode(Kind.LEAF, leaf, test, Collections.emptyList(), cost, selectivity, exact);
+        }
+
+        static PlannedNode constant(final boolean value) {
+            return new PlannedNode(Kind.CONSTANT, null, null, Collections.emptyList(), 0, value ? 1 : 0, true);
+        }
+
+        static PlannedNode composite(final boolean conjunction, final ProductPredicate predicate,
+                                     final List<PlannedNode> operands) {
+            if (operands.isEmpty()) {
+                return constant(conjunction);
+            }
+            if (operands.size() == 1) {
+                return operands.get(0);
+            }
+
+            // the rank of an operand: its cost, per row which it decides
+            final ToDoubleFunction<PlannedNode> rank = conjunction
+                    ? node -> node.cost / Math.max(1 - node.selectivity, 1e-9)
+                    : node -> node.cost / Math.max(node.selectivity, 1e-9);
+            final List<PlannedNode> ordered = new ArrayList<>(operands);
+            ordered.sort(Comparator.comparingDouble(rank));
+
+            // the operands are assumed to be independent
+            double cost = 0;
+            double undecided = 1;
+            for (final PlannedNode operand : ordered) {
+                cost += undecided * operand.cost;
+                undecided *= conjunction ? operand.selectivity : 1 - operand.selectivity;
+            }
+            return new PlannedNode(conjunction ? Kind.AND : Kind.OR, predicate, null,
+                                   Collections.unmodifiableList(ordered), cost,
+                                   conjunction ? undecided : 1 - undecided, false);
+        }
+
+        boolean isConstant(final boolean value) {
+            return kind == Kind.CONSTANT && selectivity == (value ? 1 : 0);
+        }
+
+        boolean test(final int ordinal) {
+            switch (kind) {
+                case LEAF:
+                    return test.test(ordinal);
+                case AND:
+                    for (final PlannedNode child : children) {
+                        if (!child.test(ordinal)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                case OR:
+                    for (final PlannedNode child : children) {
+                        if (child.test(ordinal)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                case NOT:
+                    return !children.get(0).test(ordinal);
+                default:
+                    return selectivity == 1;
+            }
+        }
+
+        /**
+         * Returns this conjunction without the given operand (which is answered by an index)
+         */
+        PlannedNode without(final PlannedNode operand) {
+            if (this == operand) {
+                return constant(true);
+            }
+            final List<PlannedNode> remaining = new ArrayList<>(children);
+            remaining.remove(operand);
+            return composite(true, predicate, remaining);
+        }
+
+        void describe(final StringBuilder text, final String indent) {
+            text.append(indent);
+            switch (kind) {
+                case LEAF:
+                    text.append(predicate);
+                    break;
+                case CONSTANT:
+                    text.append(selectivity == 1 ? "TRUE" : "FALSE");
+                    break;
+                default:
+                    text.append(kind);
+            }
+            if (kind != Kind.CONSTANT) {
+                text.append(String.format(" [selectivity %s%.3f, cost %.2f]", exact ? "" : "~", selectivity, cost));
+            }
+            text.append(System.lineSeparator());
+
+            for (final PlannedNode child : children) {
+                child.describe(text, indent + "  ");
+            }
+        }
+    }
+}
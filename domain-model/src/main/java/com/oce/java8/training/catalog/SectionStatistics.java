@@ -0,0 +1,163 @@
+package com.oce.java8.training.catalog;
+
+import com.oce.java8.training.model.Product;
+import com.oce.java8.training.model.Section;
+import com.oce.java8.training.model.Store;
+import com.oce.java8.training.model.StoreSection;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collector;
+
+/**
+ * The count, sum, min, max and average price of the products of each {@link StoreSection}, computed in a single
+ * pass.
+ * <p>
+ * The statistics are kept in striped, concurrent accumulators ({@link LongAdder}, {@link DoubleAdder} and
+ * {@link DoubleAccumulator}), so all the threads of a parallel stream update the same instance without locking;
+ * the {@link #collector} is a {@link Collector.Characteristics#CONCURRENT} one.
+ */
+public final class SectionStatistics {
+
+    private final Map<StoreSection, PriceStatistics> statistics = new EnumMap<>(StoreSection.class);
+
+    public SectionStatistics() {
+        for (final StoreSection section : StoreSection.values()) {
+            statistics.put(section, new PriceStatistics());
+        }
+    }
+
+    /**
+     * A concurrent collector of the statistics of any elements which have a section and a price
+     */
+    public static <T> Collector<T, ?, SectionStatistics> collector(final Function<? super T, StoreSection> section,
+                                                                  final ToDoubleFunction<? super T> price) {
+        return Collector.of(SectionStatistics::new,
+                            (statistics, element) -> statistics.add(section.apply(element), price.applyAsDouble(element)),
+                            SectionStatistics::combine,
+                            Collector.Characteristics.CONCURRENT,
+                            Collector.Characteristics.UNORDERED,
+                            Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * Computes the statistics of the given store, scanning the products of each section in parallel
+     */
+    public static SectionStatistics of(final Store store) {
+        final SectionStatistics statistics = new SectionStatistics();
+        for (final Section section : store.getStoreSections()) {
+            final PriceStatistics sectionStatistics = statistics.get(section.getName());
+            section.getProducts()
+                   .orElse(Collections.emptyList())
+                   .parallelStream()
+                   .mapToDouble(Product::getPrice)
+                   .forEach(sectionStatistics::add);
+        }
+        return statistics;
+    }
+
+    /**
+     * Computes the statistics of the given columns, scanning the primitive price column in parallel
+     */
+    public static SectionStatistics of(final ProductColumns columns) {
+        final SectionStatistics statistics = new SectionStatistics();
+        for (final StoreSection section : StoreSection.values()) {
+            final PriceStatistics sectionStatistics = statistics.get(section);
+            columns.ordinals(section)
+                   .parallel()
+                   .forEach(ordinal -> sectionStatistics.add(columns.getPrice(ordinal)));
+        }
+        return statistics;
+    }
+
+    public void add(final StoreSection section, final double price) {
+        statistics.get(section).add(price);
+    }
+
+    public PriceStatistics get(final StoreSection section) {
+        return statistics.get(section);
+    }
+
+    /**
+     * Adds the statistics of the given instance to this one
+     */
+    public SectionStatistics combine(final SectionStatistics other) {
+        statistics.forEach((section, sectionStatistics) -> sectionStatistics.combine(other.get(section)));
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return statistics.toString();
+    }
+
+    /**
+     * The price statistics of a single section
+     */
+    public static final class PriceStatistics {
+
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder sum = new DoubleAdder();
+        private final DoubleAccumulator min = new DoubleAccumulator(Math::min, Double.POSITIVE_INFINITY);
+        private final DoubleAccumulator max = new DoubleAccumulator(Math::max, Double.NEGATIVE_INFINITY);
+
+        private PriceStatistics() {
+        }
+
+        void add(final double price) {
+            count.increment();
+            sum.add(price);
+            min.accumulate(price);
+            max.accumulate(price);
+        }
+
+        void combine(final PriceStatistics other) {
+            count.add(other.count.sum());
+            sum.add(other.sum.sum());
+            min.accumulate(other.min.get());
+            max.accumulate(other.max.get());
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public double getSum() {
+            return sum.sum();
+        }
+
+        /**
+         * Returns the minimum price, or {@link Double#POSITIVE_INFINITY} if the section has no products
+         */
+        public double getMin() {
+            return min.get();
+        }
+
+        /**
+         * Returns the maximum price, or {@link Double#NEGATIVE_INFINITY} if the section has no products
+         */
+        public double getMax() {
+            return max.get();
+        }
+
+        /**
+         * Returns the average price, or 0 if the section has no products
+         */
+        public double getAverage() {
+            final long currentCount = getCount();
+            return currentCount > 0 ? getSum() / currentCount : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("{count=%d, sum=%f, min=%f, average=%f, max=%f}",
+                                 getCount(), getSum(), getMin(), getAverage(), getMax());
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.oce.java8.training.catalog;
+
+import com.oce.java8.training.model.Product;
+import com.oce.java8.training.model.Section;
+import com.oce.java8.training.model.Store;
+import com.oce.java8.training.model.StoreSection;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * An index over a {@link Store}, which replaces the linear scans of the store sections and of their products:
+ * <ul>
+ *     <li>the sections are indexed by their {@link StoreSection} name</li>
+ *     <li>the products are indexed by their id, in a primitive int-keyed open-addressing map</li>
+ *     <li>the products are laid out in a {@link ProductColumns} snapshot, whose ordinals are shared by the
+ *     secondary indexes (the {@link NameIndex}, the {@link TagIndex} and the
+ *     {@link PriceIndex}), which are built on their first use</li>
+ * </ul>
+ * <p>
+ * The index is a snapshot of the store, taken when it is built: it does not observe the store, so the sections or
+ * products which are added, removed or replaced afterwards are not visible through it (and the removed ones are
+ * still returned). The owner of the store must build a new index after every change, e.g. the default store index
+ * is rebuilt by {@link com.oce.java8.training.bootstrap.StoreSetup#defaultStoreChanged()}.
+ */
+public final class StoreIndex {
+
+    private final Store store;
+    private final Map<StoreSection, Section> sections;
+    private final ProductsById productsById;
+    private final ProductColumns columns;
+
+    private final Lazy<NameIndex> nameIndex;
+    private final Lazy<TagIndex> tagIndex;
+    private final Lazy<PriceIndex> priceIndex;
+
+    private StoreIndex(final Store store) {
+        this.store = store;
+        this.sections = new EnumMap<>(StoreSection.class);
+
+        int productsCount = 0;
+        for (final Section section : store.getStoreSections()) {
+            // when several sections share the same name, the one with the lowest id wins
+            sections.merge(section.getName(), section, (first, second) -> first.getId() <= second.getId() ? first : second);
+            productsCount += getProducts(section).size();
+        }
+
+        this.productsById = new ProductsById(productsCount);
+        for (final Section section : store.getStoreSections()) {
+            for (final Product product : getProducts(section)) {
+                productsById.put(product);
+            }
+        }
+
+        this.columns = ProductColumns.of(store);
+        this.nameIndex = new Lazy<>(() -> NameIndex.of(columns));
+        this.tagIndex = new Lazy<>(() -> TagIndex.of(columns));
+        this.priceIndex = new Lazy<>(() -> PriceIndex.of(columns));
+    }
+
+    /**
+     * Builds a snapshot index of the current content of the given store; see the class documentation
+     */
+    public static StoreIndex of(final Store store) {
+        return new StoreIndex(store);
+    }
+
+    public Store getStore() {
+        return store;
+    }
+
+    /**
+     * Returns the section with the given name
+     *
+     * @throws IllegalArgumentException if the store has no such section
+     */
+    public Section getSection(final StoreSection name) {
+        final Section section = sections.get(name);
+        if (section == null) {
+            throw new IllegalArgumentException("There's no section named '" + name + "'");
+        }
+        return section;
+    }
+
+    public boolean hasSection(final StoreSection name) {
+        return sections.containsKey(name);
+    }
+
+    /**
+     * Returns the products of the section with the given name, or an empty list if the section has no products
+     */
+    public List<Product> getProducts(final StoreSection name) {
+        return getProducts(getSection(name));
+    }
+
+    /**
+     * Returns the product with the given id, or null if there is no such product
+     */
+    public Product getProduct(final int id) {
+        return productsById.get(id);
+    }
+
+    public int getProductsCount() {
+        return productsById.size;
+    }
+
+    public ProductColumns getColumns() {
+        return columns;
+    }
+
+    public NameIndex getNameIndex() {
+        return nameIndex.get();
+    }
+
+    public TagIndex getTagIndex() {
+        return tagIndex.get();
+    }
+
+    public PriceIndex getPriceIndex() {
+        return priceIndex.get();
+    }
+
+    /**
+     * Returns the products from the given section whose name contains the given text, ignoring the case
+     */
+    public List<Product> findByName(final StoreSection name, final String text) {
+        final int[] ordinals = getNameIndex().search(text);
+        final int start = columns.sectionStart(name);
+        final int end = columns.sectionEnd(name);
+
+        final List<Product> products = new ArrayList<>();
+        for (final int ordinal : ordinals) {
+            if (ordinal >= start && ordinal < end) {
+                products.add(columns.getProduct(ordinal));
+            }
+        }
+        return products;
+    }
+
+    /**
+     * Returns the products which have all the given tags
+     */
+    public List<Product> findByTags(final String... tags) {
+        final BitSet ordinals = getTagIndex().allOf(tags);
+
+        final List<Product> products = new ArrayList<>(ordinals.cardinality());
+        for (int ordinal = ordinals.nextSetBit(0); ordinal >= 0; ordinal = ordinals.nextSetBit(ordinal + 1)) {
+            products.add(columns.getProduct(ordinal));
+        }
+        return products;
+    }
+
+    /**
+     * Returns the products with a price bigger than the given one, sorted by price
+     */
+    public List<Product> findByPriceGreaterThan(final double price) {
+        return columns.getProducts(getPriceIndex().greaterThan(price));
+    }
+
+    /**
+     * Returns the products from the given section with a price bigger than the given one, sorted by price
+     */
+    public List<Product> findByPriceGreaterThan(final StoreSection name, final double price) {
+        return columns.getProducts(getPriceIndex().greaterThan(name, price));
+    }
+
+    private static List<Product> getProducts(final Section section) {
+        return section.getProducts()
+                      .orElse(Collections.emptyList());
+    }
+
+    /**
+     * A secondary index, which is built (once) on its first use
+     */
+    private static final class Lazy<T> {
+
+        private final Supplier<T> builder;
+
+        private volatile T value;
+
+        Lazy(final Supplier<T> builder) {
+            this.builder = builder;
+        }
+
+        T get() {
+            T result = value;
+            if (result == null) {
+                synchronized (this) {
+                    result = value;
+                    if (result == null) {
+                        value = result = builder.get();
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * A linear probing hash map from the product id to the {@link Product}, without any key boxing
+     */
+    private static final class ProductsById {
+
+        private static final float LOAD_FACTOR = 0.5f;
+
+        private final int[] keys;
+        private final Product[] values;
+        private final int mask;
+
+        private int size;
+
+        ProductsById(final int expectedSize) {
+            final int capacity = tableSizeFor((int) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR));
+            this.keys = new int[capacity];
+            this.values = new Product[capacity];
+            this.mask = capacity - 1;
+        }
+
+        void put(final Product product) {
+            final int id = product.getId();
+            int slot = slot(id);
+            while (values[slot] != null) {
+                if (keys[slot] == id) {
+                    values[slot] = product;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            keys[slot] = id;
+            values[slot] = product;
+            size++;
+        }
+
+        Product get(final int id) {
+            int slot = slot(id);
+            Product product;
+            while ((product = values[slot]) != null) {
+                if (keys[slot] == id) {
+                    return product;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        private int slot(final int id) {
+            // spreads the (usually sequential) ids across the whole table
+            final int hash = id * 0x9E3779B9;
+            return (hash ^ hash >>> 16) & mask;
+        }
+
+        private static int tableSizeFor(final int capacity) {
+            return Integer.highestOneBit(capacity - 1) << 1;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.oce.java8.training.catalog;
+
+import com.oce.java8.training.model.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A dictionary-encoded index of the {@link Product} tags.
+ * <p>
+ * Every distinct tag is interned once in a dictionary and gets a dense id. For each tag id, a compressed set holds
+ * the ordinals of the products which have that tag, so that multi-tag AND / OR / NOT queries are set operations
+ * instead of scans over the tags list of every product. The container is picked per tag: the rare tags keep a
+ * sorted array of ordinals (4 bytes per product), the common ones a {@link BitSet} (1 bit per product of the
+ * catalog), whichever is smaller.
+ */
+public final class TagIndex {
+
+    // a tag is kept as a sorted array while its products are less than 1/32 of the catalog
+    private static final int ARRAY_CARDINALITY_RATIO = 32;
+
+    private final Map<String, Integer> tagIds;
+    private final String[] tags;
+    private final Postings[] productsByTag;
+    private final int productsCount;
+
+    private TagIndex(final Map<String, Integer> tagIds, final String[] tags, final Postings[] productsByTag,
+                     final int productsCount) {
+        this.tagIds = tagIds;
+        this.tags = tags;
+        this.productsByTag = productsByTag;
+        this.productsCount = productsCount;
+    }
+
+    public static TagIndex of(final ProductColumns columns) {
+        final Map<String, Integer> tagIds = new HashMap<>();
+        final List<String> tags = new ArrayList<>();
+        final List<OrdinalsBuilder> builders = new ArrayList<>();
+
+        for (int ordinal = 0; ordinal < columns.size(); ordinal++) {
+            for (final String tag : columns.getTags(ordinal)) {
+                Integer tagId = tagIds.get(tag);
+                if (tagId == null) {
+                    tagId = tags.size();
+                    tagIds.put(tag, tagId);
+                    tags.add(tag);
+                    builders.add(new OrdinalsBuilder());
+                }
+                builders.get(tagId).add(ordinal);
+            }
+        }
+
+        final Postings[] productsByTag = new Postings[builders.size()];
+        for (int tagId = 0; tagId < productsByTag.length; tagId++) {
+            productsByTag[tagId] = builders.get(tagId).build(columns.size());
+        }
+        return new TagIndex(tagIds, tags.toArray(new String[tags.size()]), productsByTag, columns.size());
+    }
+
+    public int getTagsCount() {
+        return tags.length;
+    }
+
+    /**
+     * Returns the dictionary id of the given tag, or -1 if no product has that tag
+     */
+    public int getTagId(final String tag) {
+        final Integer tagId = tagIds.get(tag);
+        return tagId != null ? tagId : -1;
+    }
+
+    public String getTag(final int tagId) {
+        return tags[tagId];
+    }
+
+    /**
+     * Returns the dictionary instance of the given tag, so that repeated tag strings can share a single instance
+     */
+    public String intern(final String tag) {
+        final int tagId = getTagId(tag);
+        return tagId >= 0 ? tags[tagId] : tag;
+    }
+
+    /**
+     * Returns the number of products which have the given tag
+     */
+    public int count(final String tag) {
+        final int tagId = getTagId(tag);
+        return tagId >= 0 ? productsByTag[tagId].cardinality() : 0;
+    }
+
+    /**
+     * Returns the ordinals of the products which have all the given tags
+     */
+    public BitSet allOf(final String... tags) {
+        if (tags.length == 0) {
+            return all();
+        }
+
+        final Postings[] postings = new Postings[tags.length];
+        for (int index = 0; index < tags.length; index++) {
+            final int tagId = getTagId(tags[index]);
+            if (tagId < 0) {
+                return new BitSet();
+            }
+            postings[index] = productsByTag[tagId];
+        }
+
+        // the intersection starts from the rarest tag, so it never gets larger than its products
+        Arrays.sort(postings, Comparator.comparingInt(Postings::cardinality));
+        final BitSet result = postings[0].toBitSet();
+        for (int index = 1; index < postings.length && !result.isEmpty(); index++) {
+            postings[index].andInto(result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the ordinals of the products which have at least one of the given tags
+     */
+    public BitSet anyOf(final String... tags) {
+        final BitSet result = new BitSet(productsCount);
+        for (final String tag : tags) {
+            final int tagId = getTagId(tag);
+            if (tagId >= 0) {
+                productsByTag[tagId].orInto(result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the ordinals of the products which have none of the given tags
+     */
+    public BitSet noneOf(final String... tags) {
+        final BitSet result = all();
+        andNot(result, tags);
+        return result;
+    }
+
+    /**
+     * Returns the ordinals of the products which have all the required tags and none of the excluded ones
+     */
+    public BitSet query(final List<String> required, final List<String> excluded) {
+        final BitSet result = allOf(required.toArray(new String[required.size()]));
+        andNot(result, excluded.toArray(new String[excluded.size()]));
+        return result;
+    }
+
+    private void andNot(final BitSet result, final String... tags) {
+        for (int index = 0; index < tags.length && !result.isEmpty(); index++) {
+            final int tagId = getTagId(tags[index]);
+            if (tagId >= 0) {
+                productsByTag[tagId].andNotInto(result);
+            }
+        }
+    }
+
+    private BitSet all() {
+        final BitSet result = new BitSet(productsCount);
+        result.set(0, productsCount);
+        return result;
+    }
+
+    /**
+     * The ordinals of the products which have a tag
+     */
+    private interface Postings {
+
+        int cardinality();
+
+        BitSet toBitSet();
+
+        void andInto(BitSet result);
+
+        void orInto(BitSet result);
+
+        void andNotInto(BitSet result);
+    }
+
+    /**
+     * The ordinals of a rare tag, as a sorted array
+     */
+    private static final class ArrayPostings implements Postings {
+
+        private final int[] ordinals;
+
+        ArrayPostings(final int[] ordinals) {
+            this.ordinals = ordinals;
+        }
+
+        @Override
+        public int cardinality() {
+            return ordinals.length;
+        }
+
+        @Override
+        public BitSet toBitSet() {
+            final BitSet bitSet = new BitSet();
+            orInto(bitSet);
+            return bitSet;
+        }
+
+        @Override
+        public void andInto(final BitSet result) {
+            final BitSet intersection = new BitSet();
+            for (final int ordinal : ordinals) {
+                if (result.get(ordinal)) {
+                    intersection.set(ordinal);
+                }
+            }
+            result.clear();
+            result.or(intersection);
+        }
+
+        @Override
+        public void orInto(final BitSet result) {
+            for (final int ordinal : ordinals) {
+                result.set(ordinal);
+            }
+        }
+
+        @Override
+        public void andNotInto(final BitSet result) {
+            for (final int ordinal : ordinals) {
+                result.clear(ordinal);
+            }
+        }
+    }
+
+    /**
+     * The ordinals of a common tag, as a bitset
+     */
+    private static final class BitSetPostings implements Postings {
+
+        private final BitSet ordinals;
+        private final int cardinality;
+
+        BitSetPostings(final BitSet ordinals) {
+            this.ordinals = ordinals;
+            this.cardinality = ordinals.cardinality();
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public BitSet toBitSet() {
+            return (BitSet) ordinals.clone();
+        }
+
+        @Override
+        public void andInto(final BitSet result) {
+            result.and(ordinals);
+        }
+
+        @Override
+        public void orInto(final BitSet result) {
+            result.or(ordinals);
+        }
+
+        @Override
+        public void andNotInto(final BitSet result) {
+            result.andNot(ordinals);
+        }
+    }
+
+    /**
+     * Collects the (ascending) ordinals of a tag and picks the smallest container for them
+     */
+    private static final class OrdinalsBuilder {
+
+        private int[] ordinals = new int[4];
+        private int size;
+
+        void add(final int ordinal) {
+            // a product which repeats a tag is added once
+            if (size > 0 && ordinals[size - 1] == ordinal) {
+                return;
+            }
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = ordinal;
+        }
+
+        Postings build(final int productsCount) {
+            if (size < productsCount / ARRAY_CARDINALITY_RATIO) {
+                return new ArrayPostings(Arrays.copyOf(ordinals, size));
+            }
+
+            final BitSet bitSet = new BitSet(ordinals[size - 1] + 1);
+            for (int index = 0; index < size; index++) {
+                bitSet.set(ordinals[index]);
+            }
+            return new BitSetPostings(bitSet);
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.oce.java8.training.codec;
+
+import com.oce.java8.training.model.Discount;
+import com.oce.java8.training.model.Manager;
+import com.oce.java8.training.model.Product;
+import com.oce.java8.training.model.Section;
+import com.oce.java8.training.model.Store;
+import com.oce.java8.training.model.StoreSection;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A compact, versioned binary codec for a {@link Store} and its {@link Section}s, {@link Product}s,
+ * {@link Manager}s and {@link Discount}s.
+ * <p>
+ * A store snapshot is laid out as:
+ * <pre>
+ *     magic (int) | version (byte) | strings dictionary | store | managers | sections (with their products)
+ * </pre>
+ * The ids and the counts are variable length integers and every string is written once in the dictionary and
+ * then referenced by its (variable length) dictionary index. The product records can also be written on their
+ * own, with inline strings, through {@link #writeProduct} and {@link #readProduct}.
+ */
+public final class CatalogCodec {
+
+    public static final int MAGIC = 0x4F434543; // "OCEC"
+
+    public static final byte VERSION = 1;
+
+    private static final StoreSection[] STORE_SECTIONS = StoreSection.values();
+
+    private static final Discount.Type[] DISCOUNT_TYPES = Discount.Type.values();
+
+    private static final int NULL_REFERENCE = 0;
+
+    // the product flags
+    private static final int HAS_DISCOUNT = 1;
+    private static final int HAS_TAGS = 1 << 1;
+
+    private CatalogCodec() {
+    }
+
+    /**
+     * Encodes the given store in a new buffer, which is ready to be read (or written to a channel)
+     */
+    public static ByteBuffer encode(final Store store) {
+        final Dictionary dictionary = new Dictionary(store);
+        final ByteBuffer buffer = ByteBuffer.allocate(encodedSize(store, dictionary));
+        encode(store, dictionary, buffer);
+        // called through Buffer, as the ByteBuffer override (JDK 9+) does not exist on a JDK 1.8 runtime
+        ((Buffer) buffer).flip();
+        return buffer;
+    }
+
+    /**
+     * Encodes the given store, starting from the current position of the given buffer
+     *
+     * @throws java.nio.BufferOverflowException if the buffer is too small
+     */
+    public static void encode(final Store store, final ByteBuffer buffer) {
+        encode(store, new Dictionary(store), buffer);
+    }
+
+    /**
+     * Returns the number of bytes needed to encode the given store
+     */
+    public static int encodedSize(final Store store) {
+        return encodedSize(store, new Dictionary(store));
+    }
+
+    /**
+     * Decodes a store, starting from the current position of the given buffer
+     *
+     * @throws IllegalArgumentException if the buffer does not hold a supported catalog snapshot
+     */
+    public static Store decode(final ByteBuffer buffer) {
+        readHeader(buffer);
+
+        final char[] scratch = new char[64];
+        final String[] strings = new String[Varints.readUnsigned(buffer) + 1];
+        for (int index = 1; index < strings.length; index++) {
+            strings[index] = Varints.readString(buffer, scratch);
+        }
+
+        final int storeId = Varints.readSigned(buffer);
+        final String storeName = strings[Varints.readUnsigned(buffer)];
+        final String location = strings[Varints.readUnsigned(buffer)];
+
+        final int managersCount = Varints.readUnsigned(buffer);
+        final Set<Manager> managers = new HashSet<>(capacityFor(managersCount));
+        for (int index = 0; index < managersCount; index++) {
+            managers.add(new Manager(Varints.readSigned(buffer), strings[Varints.readUnsigned(buffer)]));
+        }
+
+        final int sectionsCount = Varints.readUnsigned(buffer);
+        final Set<Section> sections = new HashSet<>(capacityFor(sectionsCount));
+        for (int index = 0; index < sectionsCount; index++) {
+            sections.add(readSection(buffer, strings));
+        }
+
+        return new Store(storeId, storeName, location, sections, managers);
+    }
+
+    /**
+     * Writes a single product record, with its strings inline
+     */
+    public static void writeProduct(final Product product, final ByteBuffer buffer) {
+        writeProductFields(product, buffer);
+        Varints.writeString(buffer, product.getName());
+        final List<String> tags = product.getTags().orElse(null);
+        if (tags != null) {
+            Varints.writeUnsigned(buffer, tags.size());
+            for (final String tag : tags) {
+                Varints.writeString(buffer, tag);
+            }
+        }
+    }
+
+    /**
+     * Reads a single product record, written by {@link #writeProduct}
+     */
+    public static Product readProduct(final ByteBuffer buffer, final char[] scratch) {
+        final int id = Varints.readSigned(buffer);
+        final double price = buffer.getDouble();
+        final int flags = buffer.get();
+        final Discount discount = (flags & HAS_DISCOUNT) != 0 ? readDiscount(buffer) : null;
+
+        final String name = Varints.readString(buffer, scratch);
+        List<String> tags = null;
+        if ((flags & HAS_TAGS) != 0) {
+            final int tagsCount = Varints.readUnsigned(buffer);
+            tags = new ArrayList<>(tagsCount);
+            for (int index = 0; index < tagsCount; index++) {
+                tags.add(Varints.readString(buffer, scratch));
+            }
+        }
+        return new Product(id, name, price, discount, tags);
+    }
+
+    /**
+     * Returns the number of bytes of a product record written by {@link #writeProduct}
+     */
+    public static int sizeOfProduct(final Product product) {
+        int size = sizeOfProductFields(product) + Varints.sizeOfString(product.getName());
+        final List<String> tags = product.getTags().orElse(null);
+        if (tags != null) {
+            size += Varints.sizeOfUnsigned(tags.size());
+            for (final String tag : tags) {
+                size += Varints.sizeOfString(tag);
+            }
+        }
+        return size;
+    }
+
+    private static void readHeader(final ByteBuffer buffer) {
+        if (buffer.remaining() < 5 || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("The buffer does not hold a catalog snapshot");
+        }
+
+        final byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported catalog snapshot version " + version);
+        }
+    }
+
+    private static void encode(final Store store, final Dictionary dictionary, final ByteBuffer buffer) {
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+
+        Varints.writeUnsigned(buffer, dictionary.strings.size());
+        for (final String value : dictionary.strings) {
+            Varints.writeString(buffer, value);
+        }
+
+        Varints.writeSigned(buffer, store.getId());
+        Varints.writeUnsigned(buffer, dictionary.reference(store.getName()));
+        Varints.writeUnsigned(buffer, dictionary.reference(store.getLocation()));
+
+        final Set<Manager> managers = nonNull(store.getStoreManagers());
+        Varints.writeUnsigned(buffer, managers.size());
+        for (final Manager manager : managers) {
+            Varints.writeSigned(buffer, manager.getId());
+            Varints.writeUnsigned(buffer, dictionary.reference(manager.getName()));
+        }
+
+        final Set<Section> sections = nonNull(store.getStoreSections());
+        Varints.writeUnsigned(buffer, sections.size());
+        for (final Section section : sections) {
+            writeSection(section, dictionary, buffer);
+        }
+    }
+
+    private static int encodedSize(final Store store, final Dictionary dictionary) {
+        int size = Integer.BYTES + 1 + Varints.sizeOfUnsigned(dictionary.strings.size());
+        for (final String value : dictionary.strings) {
+            size += Varints.sizeOfString(value);
+        }
+
+        size += Varints.sizeOfSigned(store.getId()) + Varints.sizeOfUnsigned(dictionary.reference(store.getName()))
+                + Varints.sizeOfUnsigned(dictionary.reference(store.getLocation()));
+
+        final Set<Manager> managers = nonNull(store.getStoreManagers());
+        size += Varints.sizeOfUnsigned(managers.size());
+        for (final Manager manager : managers) {
+            size += Varints.sizeOfSigned(manager.getId()) + Varints.sizeOfUnsigned(dictionary.reference(manager.getName()));
+        }
+
+        final Set<Section> sections = nonNull(store.getStoreSections());
+        size += Varints.sizeOfUnsigned(sections.size());
+        for (final Section section : sections) {
+            // id, name and the 'has products' marker
+            size += Varints.sizeOfSigned(section.getId()) + 2;
+
+            final List<Product> products = section.getProducts().orElse(null);
+            if (products != null) {
+                size += Varints.sizeOfUnsigned(products.size());
+                for (final Product product : products) {
+                    size += sizeOfProductFields(product) + Varints.sizeOfUnsigned(dictionary.reference(product.getName()));
+                    final List<String> tags = product.getTags().orElse(null);
+                    if (tags != null) {
+                        size += Varints.sizeOfUnsigned(tags.size());
+                        for (final String tag : tags) {
+                            size += Varints.sizeOfUnsigned(dictionary.reference(tag));
+                        }
+                    }
+                }
+            }
+        }
+        return size;
+    }
+
+    private static void writeSection(final Section section, final Dictionary dictionary, final ByteBuffer buffer) {
+        Varints.writeSigned(buffer, section.getId());
+        buffer.put((byte) section.getName().ordinal());
+
+        final List<Product> products = section.getProducts().orElse(null);
+        buffer.put((byte) (products != null ? 1 : 0));
+        if (products == null) {
+            return;
+        }
+
+        Varints.writeUnsigned(buffer, products.size());
+        for (final Product product : products) {
+            writeProductFields(product, buffer);
+            Varints.writeUnsigned(buffer, dictionary.reference(product.getName()));
+
+            final List<String> tags = product.getTags().orElse(null);
+            if (tags != null) {
+                Varints.writeUnsigned(buffer, tags.size());
+                for (final String tag : tags) {
+                    Varints.writeUnsigned(buffer, dictionary.reference(tag));
+                }
+            }
+        }
+    }
+
+    private static Section readSection(final ByteBuffer buffer, final String[] strings) {
+        final int id = Varints.readSigned(buffer);
+        final StoreSection name = STORE_SECTIONS[buffer.get()];
+        if (buffer.get() == 0) {
+            return new Section(id, name, null);
+        }
+
+        final int productsCount = Varints.readUnsigned(buffer);
+        final List<Product> products = new ArrayList<>(productsCount);
+        for (int index = 0; index < productsCount; index++) {
+            final int productId = Varints.readSigned(buffer);
+            final double price = buffer.getDouble();
+            final int flags = buffer.get();
+            final Discount discount = (flags & HAS_DISCOUNT) != 0 ? readDiscount(buffer) : null;
+            final String productName = strings[Varints.readUnsigned(buffer)];
+
+            List<String> tags = null;
+            if ((flags & HAS_TAGS) != 0) {
+                final int tagsCount = Varints.readUnsigned(buffer);
+                tags = new ArrayList<>(tagsCount);
+                for (int tag = 0; tag < tagsCount; tag++) {
+                    tags.add(strings[Varints.readUnsigned(buffer)]);
+                }
+            }
+            products.add(new Product(productId, productName, price, discount, tags));
+        }
+        return new Section(id, name, products);
+    }
+
+    // the id, the price, the flags and the discount of a product; the name and the tags are written by the caller
+    private static void writeProductFields(final Product product, final ByteBuffer buffer) {
+        final Discount discount = product.getDiscount().orElse(null);
+
+        Varints.writeSigned(buffer, product.getId());
+        buffer.putDouble(product.getPrice());
+        buffer.put((byte) ((discount != null ? HAS_DISCOUNT : 0) | (product.getTags().isPresent() ? HAS_TAGS : 0)));
+        if (discount != null) {
+            buffer.put((byte) discount.getDiscountType().ordinal());
+            Varints.writeSigned(buffer, discount.getValue());
+        }
+    }
+
+    private static int sizeOfProductFields(final Product product) {
+        final Discount discount = product.getDiscount().orElse(null);
+        return Varints.sizeOfSigned(product.getId()) + Double.BYTES + 1
+                + (discount != null ? 1 + Varints.sizeOfSigned(discount.getValue()) : 0);
+    }
+
+    private static Discount readDiscount(final ByteBuffer buffer) {
+        final Discount.Type type = DISCOUNT_TYPES[buffer.get()];
+        return new Discount(Varints.readSigned(buffer), type);
+    }
+
+    private static <T> Set<T> nonNull(final Set<T> values) {
+        return values != null ? values : Collections.emptySet();
+    }
+
+    private static int capacityFor(final int size) {
+        return (int) (size / 0.75f) + 1;
+    }
+
+    /**
+     * The distinct strings of a store, in their first appearance order; the reference 0 stands for null
+     */
+    private static final class Dictionary {
+
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, Integer> references = new HashMap<>();
+
+        Dictionary(final Store store) {
+            add(store.getName());
+            add(store.getLocation());
+            nonNull(store.getStoreManagers()).forEach(manager -> add(manager.getName()));
+            for (final Section section : nonNull(store.getStoreSections())) {
+                for (final Product product : section.getProducts().orElse(Collections.emptyList())) {
+                    add(product.getName());
+                    product.getTags().ifPresent(tags -> tags.forEach(this::add));
+                }
+            }
+        }
+
+        int reference(final String value) {
+            return value != null ? references.get(value) : NULL_REFERENCE;
+        }
+
+        private void add(final String value) {
+            if (value != null && !references.containsKey(value)) {
+                strings.add(value);
+                references.put(value, strings.size());
+            }
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package com.oce.java8.training.codec;
+
+import com.oce.java8.training.model.Product;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Sorts any number of {@link Product}s within a fixed memory budget.
+ * <p>
+ * The products are gathered in runs of half the budget; each full run is sorted (with {@link Arrays#parallelSort})
+ * and spilled to a temporary file, as length-prefixed {@link CatalogCodec#writeProduct} records, in the background,
+ * while the next run is being filled. The spilled runs are then k-way merged by a streaming iterator, which only
+ * keeps a read buffer and a product per run in memory; if there are too many runs for the budget, they are first
+ * merged in larger runs. The sort is stable and, if all the products fit in a single run, nothing is spilled.
+ */
+public final class ExternalSorter {
+
+    private static final int IO_BUFFER_SIZE = 64 << 10;
+
+    // the estimated heap size of a product, besides its encoded fields (the object headers, the references, ...)
+    private static final int PRODUCT_OVERHEAD = 96;
+
+    private final Comparator<? super Product> comparator;
+    private final long memoryBudget;
+    private final Path spillDirectory;
+
+    /**
+     * @param comparator     the sort order
+     * @param memoryBudget   the (approximate) maximum number of heap bytes used by the sort
+     * @param spillDirectory the directory of the temporary run files
+     */
+    public ExternalSorter(final Comparator<? super Product> comparator, final long memoryBudget,
+                          final Path spillDirectory) {
+        if (memoryBudget < 4 * IO_BUFFER_SIZE) {
+            throw new IllegalArgumentException("The memory budget must be at least " + 4 * IO_BUFFER_SIZE + " bytes");
+        }
+
+        this.comparator = comparator;
+        this.memoryBudget = memoryBudget;
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * Sorts the given products; the returned iterator should be closed if it is not consumed entirely, to delete
+     * its run files
+     */
+    public SortedProducts sort(final Iterator<? extends Product> products) {
+        final long runBudget = memoryBudget / 2;
+        final List<Path> runs = new ArrayList<>();
+        // at most one run is sorted and spilled in the background, while the next one is filled
+        CompletableFuture<Void> spilling = CompletableFuture.completedFuture(null);
+
+        try {
+            List<Product> run = new ArrayList<>();
+            long runSize = 0;
+
+            while (products.hasNext()) {
+                final Product product = products.next();
+                run.add(product);
+                runSize += PRODUCT_OVERHEAD + CatalogCodec.sizeOfProduct(product);
+
+                if (runSize >= runBudget) {
+                    final Product[] fullRun = run.toArray(new Product[run.size()]);
+                    run = new ArrayList<>();
+                    runSize = 0;
+
+                    spilling.join();
+                    spilling = CompletableFuture.runAsync(() -> {
+                        Arrays.parallelSort(fullRun, comparator);
+                        runs.add(spill(Arrays.asList(fullRun).iterator()));
+                    });
+                }
+            }
+            spilling.join();
+
+            final Product[] lastRun = run.toArray(new Product[run.size()]);
+            Arrays.parallelSort(lastRun, comparator);
+            if (runs.isEmpty()) {
+                return new SortedProducts(Arrays.asList(lastRun).iterator(), () -> { });
+            }
+            if (lastRun.length > 0) {
+                runs.add(spill(Arrays.asList(lastRun).iterator()));
+            }
+
+            final MergingIterator merged = new MergingIterator(mergeDown(runs));
+            return new SortedProducts(merged, merged::close);
+        } catch (final RuntimeException e) {
+            spilling.exceptionally(exception -> null).join();
+            runs.forEach(ExternalSorter::deleteQuietly);
+            if (e instanceof CompletionException && e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    public SortedProducts sort(final Stream<? extends Product> products) {
+        return sort(products.iterator());
+    }
+
+    // merges groups of runs until they can all be merged at once, with a read buffer per run; the merged runs are
+    // added to the given runs too, so that they are deleted if the sort fails
+    private List<Path> mergeDown(final List<Path> runs) {
+        // a read buffer per merged run, plus the write buffer of the merged run
+        final int maxRuns = (int) Math.max(2, Math.min(Integer.MAX_VALUE, memoryBudget / IO_BUFFER_SIZE - 1));
+
+        List<Path> pending = new ArrayList<>(runs);
+        while (pending.size() > maxRuns) {
+            final List<Path> merged = new ArrayList<>();
+            for (int from = 0; from < pending.size(); from += maxRuns) {
+                final List<Path> group = new ArrayList<>(pending.subList(from, Math.min(from + maxRuns,
+                                                                                          pending.size())));
+                if (group.size() == 1) {
+                    merged.add(group.get(0));
+                } else {
+                    try (final MergingIterator iterator = new MergingIterator(group)) {
+                        final Path mergedRun = spill(iterator);
+                        runs.add(mergedRun);
+                        merged.add(mergedRun);
+                    }
+                }
+            }
+            pending = merged;
+        }
+        return pending;
+    }
+
+    private Path spill(final Iterator<Product> products) {
+        try {
+            final Path file = Files.createTempFile(spillDirectory, "products-", ".run");
+            try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER_SIZE);
+                while (products.hasNext()) {
+                    final Product product = products.next();
+                    final int size = CatalogCodec.sizeOfProduct(product);
+                    if (buffer.remaining() < Integer.BYTES + size) {
+                        write(channel, buffer);
+                        if (buffer.capacity() < Integer.BYTES + size) {
+                            buffer = ByteBuffer.allocate(Integer.BYTES + size);
+                        }
+                    }
+                    buffer.putInt(size);
+                    CatalogCodec.writeProduct(product, buffer);
+                }
+                write(channel, buffer);
+            } catch (final IOException | RuntimeException e) {
+                deleteQuietly(file);
+                throw e;
+            }
+            return file;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void write(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+        // the Buffer methods, as the ByteBuffer overrides of JDK 9+ are missing on a JDK 1.8 runtime
+        ((Buffer) buffer).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        ((Buffer) buffer).clear();
+    }
+
+    private static void deleteQuietly(final Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (final IOException e) {
+            // the file is in a temporary directory
+        }
+    }
+
+    /**
+     * The sorted products, read lazily; closing them deletes the remaining run files
+     */
+    public static final class SortedProducts implements Iterator<Product>, AutoCloseable {
+
+        private final Iterator<Product> products;
+        private final Runnable cleanup;
+
+        private SortedProducts(final Iterator<Product> products, final Runnable cleanup) {
+            this.products = products;
+            this.cleanup = cleanup;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return products.hasNext();
+        }
+
+        @Override
+        public Product next() {
+            return products.next();
+        }
+
+        /**
+         * Returns a sequential stream of the sorted products, which closes them when it is closed
+         */
+        public Stream<Product> stream() {
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED |
+                    Spliterator.NONNULL), false)
+                                .onClose(this::close);
+        }
+
+        @Override
+        public void close() {
+            cleanup.run();
+        }
+    }
+
+    /**
+     * A k-way merge of sorted run files, through a heap of the current product of each run; the equal products are
+     * returned in the order of their runs, which keeps the sort stable
+     */
+    private final class MergingIterator implements Iterator<Product>, AutoCloseable {
+
+        private final List<RunReader> readers = new ArrayList<>();
+        private final PriorityQueue<RunReader> heads;
+
+        MergingIterator(final List<Path> runs) {
+            this.heads = new PriorityQueue<>(runs.size(), (first, second) -> {
+                final int order = comparator.compare(first.current, second.current);
+                return order != 0 ? order : Integer.compare(first.run, second.run);
+            });
+
+            try {
+                for (final Path run : runs) {
+                    final RunReader reader = new RunReader(run, readers.size());
+                    readers.add(reader);
+                    if (reader.advance()) {
+                        heads.add(reader);
+                    }
+                }
+            } catch (final RuntimeException e) {
+                close();
+                runs.forEach(ExternalSorter::deleteQuietly);
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (heads.isEmpty()) {
+                close();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public Product next() {
+            final RunReader head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+
+            final Product product = head.current;
+            if (head.advance()) {
+                heads.add(head);
+            }
+            return product;
+        }
+
+        @Override
+        public void close() {
+            heads.clear();
+            readers.forEach(RunReader::close);
+        }
+    }
+
+    private static final class RunReader {
+
+        private final FileChannel channel;
+        private final int run;
+        private final char[] scratch = new char[256];
+
+        private ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER_SIZE);
+        private Product current;
+
+        RunReader(final Path file, final int run) {
+            try {
+                // the run file is deleted as soon as it is read (or abandoned)
+                this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.run = run;
+            ((Buffer) buffer).flip();
+        }
+
+        /**
+         * Reads the next product of the run, returning false at its end
+         */
+        boolean advance() {
+            try {
+                if (!fill(Integer.BYTES)) {
+                    current = null;
+                    close();
+                    return false;
+                }
+
+                final int size = buffer.getInt();
+                if (!fill(size)) {
+                    throw new IOException("The run file is truncated");
+                }
+
+                final int limit = buffer.limit();
+                ((Buffer) buffer).limit(buffer.position() + size);
+                current = CatalogCodec.readProduct(buffer, scratch);
+                ((Buffer) buffer).limit(limit);
+                return true;
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // makes sure that the buffer has at least the given number of bytes, unless the run ends before
+        private boolean fill(final int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return true;
+            }
+
+            if (buffer.capacity() < bytes) {
+                buffer = ByteBuffer.allocate(bytes).put(buffer);
+            } else {
+                buffer.compact();
+            }
+            while (buffer.position() < bytes && channel.read(buffer) >= 0) {
+                // keep reading until there are enough bytes or the end of the file
+            }
+            ((Buffer) buffer).flip();
+            return buffer.remaining() >= bytes;
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package com.oce.java8.training.codec;
+
+import com.oce.java8.training.model.Discount;
+import com.oce.java8.training.model.Product;
+import com.oce.java8.training.model.Section;
+import com.oce.java8.training.model.Store;
+import com.oce.java8.training.model.StoreSection;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A read-only catalog file, which is opened with {@link FileChannel#map} instead of being loaded on the heap.
+ * <p>
+ * The file holds a header, a table of fixed size product records and a heap with the product names and tags:
+ * <pre>
+ *     header (32 bytes): magic (int) | version (byte) | padding | products count (int) | heap offset (long)
+ *     record (32 bytes): id (int) | section id (int) | price (double) | heap entry offset (long) |
+ *                        discount value (int) | section (byte) | discount type (byte) | flags (byte) | padding
+ *     heap entry:        name (string) [| tags count (varint) | tags (strings)]
+ * </pre>
+ * The file is mapped in segments of at most 1 GB, and no record or heap entry crosses a segment boundary, so
+ * catalogs bigger than 2 GB can be mapped as well. The products are read through {@link ProductView} flyweights,
+ * which decode their fields from the mapped buffers on access; since the pages belong to the OS page cache, they
+ * are shared by all the processes which map the same file.
+ */
+public final class MappedCatalog {
+
+    public static final int MAGIC = 0x4F43454D; // "OCEM"
+
+    public static final byte VERSION = 1;
+
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+
+    private static final int HEADER_SIZE = 32;
+    private static final int RECORD_SIZE = 32;
+
+    // the record fields offsets
+    private static final int ID = 0;
+    private static final int SECTION_ID = 4;
+    private static final int PRICE = 8;
+    private static final int HEAP_ENTRY = 16;
+    private static final int DISCOUNT_VALUE = 24;
+    private static final int SECTION = 28;
+    private static final int DISCOUNT_TYPE = 29;
+    private static final int FLAGS = 30;
+
+    private static final byte NO_DISCOUNT = -1;
+    private static final int HAS_TAGS = 1;
+
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private static final StoreSection[] STORE_SECTIONS = StoreSection.values();
+
+    private static final Discount.Type[] DISCOUNT_TYPES = Discount.Type.values();
+
+    private final ByteBuffer[] segments;
+    private final int size;
+
+    private MappedCatalog(final ByteBuffer[] segments, final int size) {
+        this.segments = segments;
+        this.size = size;
+    }
+
+    /**
+     * Maps the given catalog file; the mapping stays valid after this method returns, as long as the catalog is used
+     *
+     * @throws IllegalArgumentException if the file is not a supported catalog file
+     */
+    public static MappedCatalog open(final Path file) {
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long fileSize = channel.size();
+            final ByteBuffer[] segments = new ByteBuffer[(int) ((fileSize + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT)];
+            for (int index = 0; index < segments.length; index++) {
+                final long start = (long) index << SEGMENT_SHIFT;
+                segments[index] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                                              Math.min(SEGMENT_SIZE, fileSize - start));
+            }
+
+            if (fileSize < HEADER_SIZE || segments[0].getInt(0) != MAGIC) {
+                throw new IllegalArgumentException("The file '" + file + "' is not a catalog file");
+            }
+            if (segments[0].get(4) != VERSION) {
+                throw new IllegalArgumentException("Unsupported catalog file version " + segments[0].get(4));
+            }
+
+            return new MappedCatalog(segments, segments[0].getInt(8));
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the products of the given store in a catalog file, grouped by their section
+     */
+    public static void write(final Store store, final Path file) {
+        final List<Section> sections = new ArrayList<>(store.getStoreSections());
+        sections.sort(Comparator.comparing(Section::getName)
+                                .thenComparingInt(Section::getId));
+
+        final int productsCount = sections.stream()
+                                          .mapToInt(section -> section.getProducts().map(List::size).orElse(0))
+                                          .sum();
+        final long heapOffset = HEADER_SIZE + (long) productsCount * RECORD_SIZE;
+
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                          StandardOpenOption.TRUNCATE_EXISTING)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).put(VERSION).put(new byte[3]).putInt(productsCount).putLong(heapOffset);
+            ((Buffer) header).flip();
+            writeFully(channel, header, 0);
+
+            final ByteBuffer records = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+            final ByteBuffer heap = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+            long recordsPosition = HEADER_SIZE;
+            long heapPosition = heapOffset;
+
+            for (final Section section : sections) {
+                for (final Product product : section.getProducts().orElse(Collections.emptyList())) {
+                    final int entrySize = heapEntrySize(product);
+                    if (entrySize > heap.capacity()) {
+                        throw new IllegalArgumentException("The product " + product.getId() + " is too large");
+                    }
+
+                    // a heap entry never crosses a segment boundary
+                    long entryPosition = heapPosition + heap.position();
+                    final long segmentEnd = (entryPosition | SEGMENT_SIZE - 1) + 1;
+                    if (entryPosition + entrySize > segmentEnd) {
+                        heapPosition = flush(channel, heap, heapPosition);
+                        heapPosition = segmentEnd;
+                        entryPosition = segmentEnd;
+                    }
+                    if (heap.remaining() < entrySize) {
+                        heapPosition = flush(channel, heap, heapPosition);
+                    }
+                    writeHeapEntry(product, heap);
+
+                    if (records.remaining() < RECORD_SIZE) {
+                        recordsPosition = flush(channel, records, recordsPosition);
+                    }
+                    writeRecord(product, section, entryPosition, records);
+                }
+            }
+
+            flush(channel, records, recordsPosition);
+            flush(channel, heap, heapPosition);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a new view, positioned on the product with the given ordinal
+     */
+    public ProductView product(final int ordinal) {
+        return view().moveTo(ordinal);
+    }
+
+    /**
+     * Returns a new, unpositioned view, which can be moved over all the products without any further allocation
+     */
+    public ProductView view() {
+        return new ProductView();
+    }
+
+    private int getInt(final long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)].getInt((int) (position & SEGMENT_SIZE - 1));
+    }
+
+    private long getLong(final long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)].getLong((int) (position & SEGMENT_SIZE - 1));
+    }
+
+    private double getDouble(final long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)].getDouble((int) (position & SEGMENT_SIZE - 1));
+    }
+
+    private byte get(final long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & SEGMENT_SIZE - 1));
+    }
+
+    /**
+     * A flyweight over a product record of the mapped catalog. A view is not thread safe, but it can be moved over
+     * any number of products; the fields are decoded from the mapped file on each access.
+     */
+    public final class ProductView {
+
+        private int ordinal = -1;
+        private long record;
+
+        private ProductView() {
+        }
+
+        public ProductView moveTo(final int ordinal) {
+            if (ordinal < 0 || ordinal >= size) {
+                throw new IndexOutOfBoundsException("There's no product with the ordinal " + ordinal);
+            }
+            this.ordinal = ordinal;
+            this.record = HEADER_SIZE + (long) ordinal * RECORD_SIZE;
+            return this;
+        }
+
+        public int getOrdinal() {
+            return ordinal;
+        }
+
+        public int getId() {
+            return getInt(record + ID);
+        }
+
+        public double getPrice() {
+            return getDouble(record + PRICE);
+        }
+
+        public int getSectionId() {
+            return getInt(record + SECTION_ID);
+        }
+
+        public StoreSection getSection() {
+            return STORE_SECTIONS[get(record + SECTION)];
+        }
+
+        public boolean hasDiscount() {
+            return get(record + DISCOUNT_TYPE) != NO_DISCOUNT;
+        }
+
+        /**
+         * Returns the discount of the product, or null if the product has no discount
+         */
+        public Discount getDiscount() {
+            final byte discountType = get(record + DISCOUNT_TYPE);
+            return discountType == NO_DISCOUNT ? null
+                                               : new Discount(getInt(record + DISCOUNT_VALUE), DISCOUNT_TYPES[discountType]);
+        }
+
+        public String getName() {
+            return readString(new long[]{getLong(record + HEAP_ENTRY)});
+        }
+
+        /**
+         * Returns the tags of the product, or null if the product has no tags
+         */
+        public List<String> getTags() {
+            if ((get(record + FLAGS) & HAS_TAGS) == 0) {
+                return null;
+            }
+
+            final long[] position = {getLong(record + HEAP_ENTRY)};
+            skipString(position);
+            final int tagsCount = readUnsigned(position);
+            final List<String> tags = new ArrayList<>(tagsCount);
+            for (int index = 0; index < tagsCount; index++) {
+                tags.add(readString(position));
+            }
+            return tags;
+        }
+
+        /**
+         * Materializes the viewed product on the heap
+         */
+        public Product toProduct() {
+            return new Product(getId(), getName(), getPrice(), getDiscount(), getTags());
+        }
+
+        @Override
+        public String toString() {
+            return getId() + ", " + getName() + ": " + getPrice();
+        }
+
+        private int readUnsigned(final long[] position) {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                final byte current = get(position[0]++);
+                value |= (current & 0x7F) << shift;
+                if (current >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed variable length integer");
+        }
+
+        private void skipString(final long[] position) {
+            final int length = readUnsigned(position);
+            position[0] += length;
+        }
+
+        // decodes the string from the given position, which is then moved after the string
+        private String readString(final long[] position) {
+            final int length = readUnsigned(position);
+            final char[] chars = new char[length];
+
+            int count = 0;
+            final long end = position[0] + length;
+            while (position[0] < end) {
+                final int first = get(position[0]++) & 0xFF;
+                if (first < 0x80) {
+                    chars[count++] = (char) first;
+                } else if (first < 0xE0) {
+                    chars[count++] = (char) ((first & 0x1F) << 6 | get(position[0]++) & 0x3F);
+                } else {
+                    chars[count++] = (char) ((first & 0x0F) << 12 | (get(position[0]++) & 0x3F) << 6
+                            | get(position[0]++) & 0x3F);
+                }
+            }
+            return new String(chars, 0, count);
+        }
+    }
+
+    private static void writeRecord(final Product product, final Section section, final long heapEntry,
+                                    final ByteBuffer records) {
+        final Discount discount = product.getDiscount().orElse(null);
+
+        records.putInt(product.getId())
+               .putInt(section.getId())
+               .putDouble(product.getPrice())
+               .putLong(heapEntry)
+               .putInt(discount != null ? discount.getValue() : 0)
+               .put((byte) section.getName().ordinal())
+               .put(discount != null ? (byte) discount.getDiscountType().ordinal() : NO_DISCOUNT)
+               .put((byte) (product.getTags().isPresent() ? HAS_TAGS : 0))
+               .put((byte) 0);
+    }
+
+    private static void writeHeapEntry(final Product product, final ByteBuffer heap) {
+        Varints.writeString(heap, product.getName());
+        final List<String> tags = product.getTags().orElse(null);
+        if (tags != null) {
+            Varints.writeUnsigned(heap, tags.size());
+            tags.forEach(tag -> Varints.writeString(heap, tag));
+        }
+    }
+
+    private static int heapEntrySize(final Product product) {
+        int size = Varints.sizeOfString(product.getName());
+        final List<String> tags = product.getTags().orElse(null);
+        if (tags != null) {
+            size += Varints.sizeOfUnsigned(tags.size());
+            for (final String tag : tags) {
+                size += Varints.sizeOfString(tag);
+            }
+        }
+        return size;
+    }
+
+    // writes the buffered bytes at the given file position and returns the next file position
+    private static long flush(final FileChannel channel, final ByteBuffer buffer, final long position)
+            throws IOException {
+        // the Buffer methods, not their JDK 9+ ByteBuffer overrides, so the class also runs on JDK 1.8
+        ((Buffer) buffer).flip();
+        final long next = position + buffer.remaining();
+        writeFully(channel, buffer, position);
+        ((Buffer) buffer).clear();
+        return next;
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.oce.java8.training.codec;
+
+import com.oce.java8.training.model.Product;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Renders the {@link Product} display lines ({@code [prefix]id, name: price}, the same text as
+ * {@link Product#toString()}) straight into a caller-supplied {@link CharBuffer}, {@link ByteBuffer} (as UTF-8) or
+ * {@link Appendable}.
+ * <p>
+ * A line is rendered in a reusable char array, with the numbers formatted digit by digit, so rendering does not
+ * allocate; the only exception are the prices which are not a whole number of cents, which are formatted through
+ * {@link Double#toString}. A renderer is not thread safe, so each thread should use its own instance.
+ */
+public final class ProductRenderer {
+
+    private static final char LINE_SEPARATOR = '\n';
+
+    // below this value, the Double.toString form of a whole number of cents is its plain decimal form
+    private static final double PLAIN_DECIMAL_LIMIT = 1e7;
+
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+    private final char[] prefix;
+
+    private char[] line = new char[128];
+    private int length;
+
+    // a reusable view over the line, for the Appendable targets
+    private CharBuffer lineView = CharBuffer.wrap(line);
+
+    private final char[] digits = new char[20];
+
+    private ByteBuffer outputBuffer;
+
+    public ProductRenderer() {
+        this("");
+    }
+
+    /**
+     * Creates a renderer which starts every line with the given prefix (e.g. "The product is: ")
+     */
+    public ProductRenderer(final String prefix) {
+        this.prefix = prefix.toCharArray();
+    }
+
+    /**
+     * Renders the product line at the current position of the given buffer
+     *
+     * @return the number of written chars
+     * @throws java.nio.BufferOverflowException if the buffer is too small
+     */
+    public int render(final Product product, final CharBuffer target) {
+        renderLine(product);
+        target.put(line, 0, length);
+        return length;
+    }
+
+    /**
+     * Renders the product line, encoded as UTF-8, at the current position of the given buffer
+     *
+     * @return the number of written bytes
+     * @throws java.nio.BufferOverflowException if the buffer is too small
+     */
+    public int render(final Product product, final ByteBuffer target) {
+        renderLine(product);
+        return encode(target);
+    }
+
+    public void render(final Product product, final Appendable target) throws IOException {
+        renderLine(product);
+        // through Buffer, whose methods (unlike the JDK 9+ CharBuffer / ByteBuffer overrides) exist on JDK 1.8
+        ((Buffer) lineView).clear().limit(length);
+        target.append(lineView);
+    }
+
+    /**
+     * Renders the lines of all the given products, each one followed by a line separator, in the given channel
+     *
+     * @return the number of written bytes
+     */
+    public long renderAll(final Iterable<Product> products, final WritableByteChannel channel) {
+        if (outputBuffer == null) {
+            outputBuffer = ByteBuffer.allocateDirect(OUTPUT_BUFFER_SIZE);
+        }
+
+        long written = 0;
+        try {
+            for (final Product product : products) {
+                renderLine(product);
+                append(LINE_SEPARATOR);
+
+                // the worst case UTF-8 size of a line
+                if (outputBuffer.remaining() < length * 3) {
+                    written += flush(channel);
+                    if (outputBuffer.remaining() < length * 3) {
+                        throw new IllegalArgumentException("The line of the product " + product.getId() + " is too long");
+                    }
+                }
+                encode(outputBuffer);
+            }
+            written += flush(channel);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return written;
+    }
+
+    private void renderLine(final Product product) {
+        length = 0;
+        append(prefix, prefix.length);
+        appendLong(product.getId());
+        append(',');
+        append(' ');
+        appendString(product.getName());
+        append(':');
+        append(' ');
+        appendPrice(product.getPrice());
+    }
+
+    private void appendPrice(final double price) {
+        final long cents = Math.round(price * 100);
+        final boolean plainDecimal = Math.abs(price) >= 1e-3 && Math.abs(price) < PLAIN_DECIMAL_LIMIT;
+        if ((plainDecimal || Double.doubleToRawLongBits(price) == 0) && cents / 100.0 == price) {
+            appendCents(cents);
+        } else {
+            appendString(Double.toString(price));
+        }
+    }
+
+    // the Double.toString form of a whole number of cents: the fractional part has one or two digits
+    private void appendCents(long cents) {
+        if (cents < 0) {
+            append('-');
+            cents = -cents;
+        }
+        appendLong(cents / 100);
+        append('.');
+
+        final int fraction = (int) (cents % 100);
+        append((char) ('0' + fraction / 10));
+        if (fraction % 10 != 0) {
+            append((char) ('0' + fraction % 10));
+        }
+    }
+
+    private void appendLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            appendString(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            append('-');
+            value = -value;
+        }
+
+        int position = digits.length;
+        do {
+            digits[--position] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+
+        ensureCapacity(digits.length - position);
+        System.arraycopy(digits, position, line, length, digits.length - position);
+        length += digits.length - position;
+    }
+
+    private void appendString(final String value) {
+        if (value == null) {
+            appendString("null");
+            return;
+        }
+
+        ensureCapacity(value.length());
+        value.getChars(0, value.length(), line, length);
+        length += value.length();
+    }
+
+    private void append(final char[] chars, final int count) {
+        ensureCapacity(count);
+        System.arraycopy(chars, 0, line, length, count);
+        length += count;
+    }
+
+    private void append(final char value) {
+        ensureCapacity(1);
+        line[length++] = value;
+    }
+
+    private void ensureCapacity(final int extra) {
+        if (length + extra > line.length) {
+            line = Arrays.copyOf(line, Math.max(line.length * 2, length + extra));
+            lineView = CharBuffer.wrap(line);
+        }
+    }
+
+    private int encode(final ByteBuffer target) {
+        final int start = target.position();
+        for (int index = 0; index < length; index++) {
+            final char current = line[index];
+            if (current < 0x80) {
+                target.put((byte) current);
+            } else if (current < 0x800) {
+                target.put((byte) (0xC0 | current >> 6));
+                target.put((byte) (0x80 | current & 0x3F));
+            } else if (Character.isHighSurrogate(current) && index + 1 < length
+                    && Character.isLowSurrogate(line[index + 1])) {
+                final int codePoint = Character.toCodePoint(current, line[++index]);
+                target.put((byte) (0xF0 | codePoint >> 18));
+                target.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+                target.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+                target.put((byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(current)) {
+                target.put((byte) '?');
+            } else {
+                target.put((byte) (0xE0 | current >> 12));
+                target.put((byte) (0x80 | current >> 6 & 0x3F));
+                target.put((byte) (0x80 | current & 0x3F));
+            }
+        }
+        return target.position() - start;
+    }
+
+    private long flush(final WritableByteChannel channel) throws IOException {
+        ((Buffer) outputBuffer).flip();
+        long written = 0;
+        while (outputBuffer.hasRemaining()) {
+            written += channel.write(outputBuffer);
+        }
+        ((Buffer) outputBuffer).clear();
+        return written;
+    }
+}
@@ -0,0 +1,108 @@
+package com.oce.java8.training.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The variable length integers and the (modified UTF-8) strings used by the binary catalog formats
+ */
+final class Varints {
+
+    private Varints() {
+    }
+
+    static void writeUnsigned(final ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static int readUnsigned(final ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final byte current = buffer.get();
+            value |= (current & 0x7F) << shift;
+            if (current >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable length integer");
+    }
+
+    static int sizeOfUnsigned(final int value) {
+        return value == 0 ? 1 : (38 - Integer.numberOfLeadingZeros(value)) / 7;
+    }
+
+    // the zig-zag encoding keeps the small negative values short as well
+    static void writeSigned(final ByteBuffer buffer, final int value) {
+        writeUnsigned(buffer, value << 1 ^ value >> 31);
+    }
+
+    static int readSigned(final ByteBuffer buffer) {
+        final int value = readUnsigned(buffer);
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    static int sizeOfSigned(final int value) {
+        return sizeOfUnsigned(value << 1 ^ value >> 31);
+    }
+
+    /**
+     * Writes the byte length and the modified UTF-8 bytes (as {@link java.io.DataOutput#writeUTF} does) of the
+     * given string, without encoding it in an intermediate array
+     */
+    static void writeString(final ByteBuffer buffer, final String value) {
+        writeUnsigned(buffer, utf8Length(value));
+        for (int index = 0; index < value.length(); index++) {
+            final char current = value.charAt(index);
+            if (current != 0 && current < 0x80) {
+                buffer.put((byte) current);
+            } else if (current < 0x800) {
+                buffer.put((byte) (0xC0 | current >> 6));
+                buffer.put((byte) (0x80 | current & 0x3F));
+            } else {
+                buffer.put((byte) (0xE0 | current >> 12));
+                buffer.put((byte) (0x80 | current >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | current & 0x3F));
+            }
+        }
+    }
+
+    /**
+     * Reads a string written by {@link #writeString}, decoding its characters in the given scratch array when it
+     * is large enough
+     */
+    static String readString(final ByteBuffer buffer, final char[] scratch) {
+        final int length = readUnsigned(buffer);
+        final char[] chars = length <= scratch.length ? scratch : new char[length];
+
+        int count = 0;
+        final int end = buffer.position() + length;
+        while (buffer.position() < end) {
+            final int first = buffer.get() & 0xFF;
+            if (first < 0x80) {
+                chars[count++] = (char) first;
+            } else if (first < 0xE0) {
+                chars[count++] = (char) ((first & 0x1F) << 6 | buffer.get() & 0x3F);
+            } else {
+                chars[count++] = (char) ((first & 0x0F) << 12 | (buffer.get() & 0x3F) << 6 | buffer.get() & 0x3F);
+            }
+        }
+        return new String(chars, 0, count);
+    }
+
+    static int sizeOfString(final String value) {
+        final int length = utf8Length(value);
+        return sizeOfUnsigned(length) + length;
+    }
+
+    private static int utf8Length(final String value) {
+        int length = 0;
+        for (int index = 0; index < value.length(); index++) {
+            final char current = value.charAt(index);
+            length += current != 0 && current < 0x80 ? 1 : current < 0x800 ? 2 : 3;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,213 @@
+package com.oce.java8.training.collectors;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * An open-addressing (linear probing) hash map from byte sequences (e.g. the UTF-8 words of a text) to primitive
+ * long values. A key is read straight from its source buffer and copied in a shared byte arena only the first time
+ * it is added, so counting the tokens of a text allocates neither a String nor a byte array per token. The absent
+ * keys have the value 0.
+ */
+public final class BytesLongMap {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // the keys are never empty, so a 0 length marks a free slot
+    private int[] lengths;
+    private int[] offsets;
+    private int[] hashes;
+    private long[] values;
+    private int size;
+
+    private byte[] arena;
+    private int arenaSize;
+
+    public BytesLongMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public BytesLongMap(final int expectedSize) {
+        final int capacity = OpenAddressing.capacityFor(expectedSize);
+        this.lengths = new int[capacity];
+        this.offsets = new int[capacity];
+        this.hashes = new int[capacity];
+        this.values = new long[capacity];
+        this.arena = new byte[Math.max(capacity * 8, 64)];
+    }
+
+    /**
+     * Adds the given delta to the value of the key stored in the given bytes of the buffer (which are read with
+     * absolute gets, so the position of the buffer is not changed) and returns the new value
+     */
+    public long addTo(final ByteBuffer source, final int offset, final int length, final long delta) {
+        if (length <= 0) {
+            throw new IllegalArgumentException("The keys cannot be empty");
+        }
+
+        final int hash = hash(source, offset, length);
+        int mask = lengths.length - 1;
+        int slot = OpenAddressing.slot(hash, mask);
+        for (; lengths[slot] != 0; slot = slot + 1 & mask) {
+            if (hashes[slot] == hash && matches(slot, source, offset, length)) {
+                return values[slot] += delta;
+            }
+        }
+
+        if (OpenAddressing.isFull(size + 1, lengths.length)) {
+            resize();
+            mask = lengths.length - 1;
+            slot = OpenAddressing.slot(hash, mask);
+            while (lengths[slot] != 0) {
+                slot = slot + 1 & mask;
+            }
+        }
+
+        lengths[slot] = length;
+        offsets[slot] = store(source, offset, length);
+        hashes[slot] = hash;
+        size++;
+        return values[slot] = delta;
+    }
+
+    public void increment(final ByteBuffer source, final int offset, final int length) {
+        addTo(source, offset, length, 1);
+    }
+
+    public long get(final byte[] key) {
+        if (key.length == 0) {
+            return 0;
+        }
+
+        final ByteBuffer source = ByteBuffer.wrap(key);
+        final int hash = hash(source, 0, key.length);
+        final int mask = lengths.length - 1;
+        for (int slot = OpenAddressing.slot(hash, mask); lengths[slot] != 0; slot = slot + 1 & mask) {
+            if (hashes[slot] == hash && matches(slot, source, 0, key.length)) {
+                return values[slot];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the value of the UTF-8 encoding of the given key
+     */
+    public long get(final String key) {
+        return get(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Adds the values of the given map to the values of this map
+     */
+    public BytesLongMap addAll(final BytesLongMap other) {
+        final ByteBuffer otherArena = ByteBuffer.wrap(other.arena);
+        for (int slot = 0; slot < other.lengths.length; slot++) {
+            if (other.lengths[slot] != 0) {
+                addTo(otherArena, other.offsets[slot], other.lengths[slot], other.values[slot]);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Passes the keys, decoded as UTF-8 Strings, and their values to the given action
+     */
+    public void forEach(final ObjLongConsumer<String> action) {
+        for (int slot = 0; slot < lengths.length; slot++) {
+            if (lengths[slot] != 0) {
+                action.accept(new String(arena, offsets[slot], lengths[slot], StandardCharsets.UTF_8), values[slot]);
+            }
+        }
+    }
+
+    /**
+     * Returns a boxed copy of this map, with the keys decoded as UTF-8 Strings
+     */
+    public Map<String, Long> toMap() {
+        final Map<String, Long> map = new HashMap<>(OpenAddressing.capacityFor(size));
+        forEach(map::put);
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+
+    // FNV-1a; the slot() mixing spreads it further
+    private static int hash(final ByteBuffer source, final int offset, final int length) {
+        int hash = 0x811C9DC5;
+        for (int index = offset, end = offset + length; index < end; index++) {
+            hash = (hash ^ source.get(index)) * 0x01000193;
+        }
+        return hash;
+    }
+
+    private boolean matches(final int slot, final ByteBuffer source, final int offset, final int length) {
+        if (lengths[slot] != length) {
+            return false;
+        }
+        final int keyOffset = offsets[slot];
+        for (int index = 0; index < length; index++) {
+            if (arena[keyOffset + index] != source.get(offset + index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int store(final ByteBuffer source, final int offset, final int length) {
+        if (arenaSize + length > arena.length) {
+            final long newLength = Math.max((long) arena.length * 2, (long) arenaSize + length);
+            if (newLength > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("The keys of the map cannot exceed 2 GB");
+            }
+            arena = Arrays.copyOf(arena, (int) newLength);
+        }
+
+        for (int index = 0; index < length; index++) {
+            arena[arenaSize + index] = source.get(offset + index);
+        }
+        final int keyOffset = arenaSize;
+        arenaSize += length;
+        return keyOffset;
+    }
+
+    private void resize() {
+        final int[] oldLengths = lengths;
+        final int[] oldOffsets = offsets;
+        final int[] oldHashes = hashes;
+        final long[] oldValues = values;
+        lengths = new int[oldLengths.length * 2];
+        offsets = new int[oldLengths.length * 2];
+        hashes = new int[oldLengths.length * 2];
+        values = new long[oldLengths.length * 2];
+
+        final int mask = lengths.length - 1;
+        for (int oldSlot = 0; oldSlot < oldLengths.length; oldSlot++) {
+            if (oldLengths[oldSlot] != 0) {
+                int slot = OpenAddressing.slot(oldHashes[oldSlot], mask);
+                while (lengths[slot] != 0) {
+                    slot = slot + 1 & mask;
+                }
+                lengths[slot] = oldLengths[oldSlot];
+                offsets[slot] = oldOffsets[oldSlot];
+                hashes[slot] = oldHashes[oldSlot];
+                values[slot] = oldValues[oldSlot];
+            }
+        }
+    }
+}
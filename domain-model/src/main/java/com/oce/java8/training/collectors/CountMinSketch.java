@@ -0,0 +1,165 @@
+package com.oce.java8.training.collectors;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A count-min sketch, which estimates the frequency of any value in {@code depth * width} counters, whatever the
+ * number of distinct values: every value increments a counter per row and its frequency is the minimum of those
+ * counters. The estimates are never smaller than the real frequencies and, with a probability of
+ * {@code 1 - 2^-depth}, they exceed them by at most {@code 2 * total / width}.
+ * <p>
+ * The sketch also keeps the (at most {@code heavyHittersCount}) most frequent values seen so far, as the
+ * candidates of {@link #getHeavyHitters()}. The sketches with the same dimensions are merged by adding their
+ * counters, so the partial sketches of a parallel stream can be combined.
+ */
+public final class CountMinSketch<T> {
+
+    private final int width;
+    private final int depth;
+    private final long[][] counters;
+    private long total;
+
+    private final int heavyHittersCount;
+    private final Map<T, Long> heavyHitters = new HashMap<>();
+    // a lower bound of the smallest frequency among the heavy hitters, which filters the values that cannot be one
+    private long heavyHittersThreshold;
+
+    public CountMinSketch(final int width, final int depth, final int heavyHittersCount) {
+        if (width <= 0 || depth <= 0 || depth > 32 || heavyHittersCount < 0) {
+            throw new IllegalArgumentException("The width must be positive, the depth between 1 and 32 and the " +
+                                                       "heavy hitters count not negative");
+        }
+
+        this.width = width;
+        this.depth = depth;
+        this.counters = new long[depth][width];
+        this.heavyHittersCount = heavyHittersCount;
+    }
+
+    public void add(final T value) {
+        add(value, 1);
+    }
+
+    /**
+     * Adds the given number of occurrences of the given value and returns its new estimated frequency
+     */
+    public long add(final T value, final long count) {
+        Objects.requireNonNull(value, "The values cannot be null");
+        if (count < 0) {
+            throw new IllegalArgumentException("The count cannot be negative");
+        }
+
+        final long hash = Hashing.hash64(value);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            final int column = column(hash, row);
+            counters[row][column] += count;
+            estimate = Math.min(estimate, counters[row][column]);
+        }
+        total += count;
+
+        trackHeavyHitter(value, estimate);
+        return estimate;
+    }
+
+    /**
+     * Returns the estimated frequency of the given value; it is never smaller than the real one
+     */
+    public long estimate(final T value) {
+        final long hash = Hashing.hash64(Objects.requireNonNull(value, "The values cannot be null"));
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[row][column(hash, row)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Returns the total number of added occurrences
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Returns the most frequent values and their estimated frequencies, by descending frequency
+     */
+    public List<Map.Entry<T, Long>> getHeavyHitters() {
+        final List<Map.Entry<T, Long>> entries = new ArrayList<>();
+        heavyHitters.keySet()
+                    .forEach(value -> entries.add(new AbstractMap.SimpleImmutableEntry<>(value, estimate(value))));
+        entries.sort(Map.Entry.<T, Long>comparingByValue(Comparator.reverseOrder()));
+        return entries;
+    }
+
+    /**
+     * Adds the occurrences of the given sketch to this one
+     */
+    public CountMinSketch<T> merge(final CountMinSketch<T> other) {
+        if (other.width != width || other.depth != depth) {
+            throw new IllegalArgumentException("Only the sketches with the same dimensions can be merged");
+        }
+
+        for (int row = 0; row < depth; row++) {
+            for (int column = 0; column < width; column++) {
+                counters[row][column] += other.counters[row][column];
+            }
+        }
+        total += other.total;
+
+        // the candidates of both sketches are ranked again, by their merged frequencies
+        final Set<T> candidates = new HashSet<>(heavyHitters.keySet());
+        candidates.addAll(other.heavyHitters.keySet());
+        heavyHitters.clear();
+        heavyHittersThreshold = 0;
+        candidates.forEach(value -> trackHeavyHitter(value, estimate(value)));
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "CountMinSketch{total=" + total + ", heavyHitters=" + getHeavyHitters() + "}";
+    }
+
+    // the double hashing of Kirsch and Mitzenmacher: the row hashes are derived from the two halves of the hash
+    private int column(final long hash, final int row) {
+        final int combined = (int) hash + row * (int) (hash >>> 32);
+        return (combined & Integer.MAX_VALUE) % width;
+    }
+
+    private void trackHeavyHitter(final T value, final long estimate) {
+        if (heavyHittersCount == 0) {
+            return;
+        }
+        if (heavyHitters.containsKey(value) || heavyHitters.size() < heavyHittersCount) {
+            heavyHitters.put(value, estimate);
+            return;
+        }
+        if (estimate <= heavyHittersThreshold) {
+            return;
+        }
+
+        // the threshold only grows when a candidate is replaced, so it may be lower than the current minimum
+        T leastFrequent = null;
+        long leastFrequency = Long.MAX_VALUE;
+        for (final Map.Entry<T, Long> entry : heavyHitters.entrySet()) {
+            if (entry.getValue() < leastFrequency) {
+                leastFrequent = entry.getKey();
+                leastFrequency = entry.getValue();
+            }
+        }
+        if (estimate > leastFrequency) {
+            heavyHitters.remove(leastFrequent);
+            heavyHitters.put(value, estimate);
+        }
+        heavyHittersThreshold = Math.min(estimate, leastFrequency);
+    }
+}
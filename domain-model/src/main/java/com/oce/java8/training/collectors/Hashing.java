@@ -0,0 +1,48 @@
+package com.oce.java8.training.collectors;
+
+/**
+ * The 64 bit hashing shared by the sketches, which need more than the 32 bits of a hash code to stay accurate on
+ * large cardinalities
+ */
+final class Hashing {
+
+    private Hashing() {
+    }
+
+    /**
+     * Hashes the characters of a {@link CharSequence} (FNV-1a), the full bits of the integral and floating point
+     * boxed numbers, or the hash code of any other object; the latter only carries 32 bits of entropy, so the
+     * estimates over the other types lose accuracy on very large cardinalities
+     */
+    static long hash64(final Object value) {
+        if (value instanceof CharSequence) {
+            final CharSequence chars = (CharSequence) value;
+            long hash = 0xCBF29CE484222325L;
+            for (int index = 0; index < chars.length(); index++) {
+                hash = (hash ^ chars.charAt(index)) * 0x100000001B3L;
+            }
+            return mix64(hash);
+        }
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return mix64(((Number) value).longValue());
+        }
+        // like equals, the bits keep -0.0 apart from 0.0 and collapse all the NaNs
+        if (value instanceof Double) {
+            return mix64(Double.doubleToLongBits((Double) value));
+        }
+        if (value instanceof Float) {
+            return mix64(Float.floatToIntBits((Float) value));
+        }
+        return mix64(value.hashCode());
+    }
+
+    // the MurmurHash3 finalizer, which spreads every input bit across the whole hash
+    static long mix64(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
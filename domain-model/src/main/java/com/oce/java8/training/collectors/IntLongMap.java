@@ -0,0 +1,166 @@
+package com.oce.java8.training.collectors;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An open-addressing (linear probing) hash map from primitive int keys to primitive long values, which neither boxes
+ * the keys and the values nor allocates an entry per key. The absent keys have the value 0.
+ */
+public final class IntLongMap {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] keys;
+    private long[] values;
+    private boolean[] used;
+    private int size;
+
+    public IntLongMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntLongMap(final int expectedSize) {
+        final int capacity = OpenAddressing.capacityFor(expectedSize);
+        this.keys = new int[capacity];
+        this.values = new long[capacity];
+        this.used = new boolean[capacity];
+    }
+
+    /**
+     * Adds the given delta to the value of the given key and returns the new value
+     */
+    public long addTo(final int key, final long delta) {
+        final int slot = findOrInsert(key);
+        return values[slot] += delta;
+    }
+
+    public void increment(final int key) {
+        addTo(key, 1);
+    }
+
+    /**
+     * Sets the value of the given key and returns the previous one
+     */
+    public long put(final int key, final long value) {
+        final int slot = findOrInsert(key);
+        final long previous = values[slot];
+        values[slot] = value;
+        return previous;
+    }
+
+    public long get(final int key) {
+        final int slot = find(key);
+        return slot >= 0 ? values[slot] : 0;
+    }
+
+    public boolean containsKey(final int key) {
+        return find(key) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Adds the values of the given map to the values of this map
+     */
+    public IntLongMap addAll(final IntLongMap other) {
+        for (int slot = 0; slot < other.keys.length; slot++) {
+            if (other.used[slot]) {
+                addTo(other.keys[slot], other.values[slot]);
+            }
+        }
+        return this;
+    }
+
+    public void forEach(final IntLongConsumer action) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (used[slot]) {
+                action.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    /**
+     * Returns a boxed copy of this map
+     */
+    public Map<Integer, Long> toMap() {
+        final Map<Integer, Long> map = new HashMap<>(OpenAddressing.capacityFor(size));
+        forEach(map::put);
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+
+    private int find(final int key) {
+        final int mask = keys.length - 1;
+        for (int slot = OpenAddressing.slot(key, mask); used[slot]; slot = slot + 1 & mask) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int findOrInsert(final int key) {
+        int mask = keys.length - 1;
+        int slot = OpenAddressing.slot(key, mask);
+        for (; used[slot]; slot = slot + 1 & mask) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+        }
+
+        if (OpenAddressing.isFull(size + 1, keys.length)) {
+            resize();
+            mask = keys.length - 1;
+            slot = OpenAddressing.slot(key, mask);
+            while (used[slot]) {
+                slot = slot + 1 & mask;
+            }
+        }
+
+        keys[slot] = key;
+        used[slot] = true;
+        size++;
+        return slot;
+    }
+
+    private void resize() {
+        final int[] oldKeys = keys;
+        final long[] oldValues = values;
+        final boolean[] oldUsed = used;
+        keys = new int[oldKeys.length * 2];
+        values = new long[oldKeys.length * 2];
+        used = new boolean[oldKeys.length * 2];
+
+        final int mask = keys.length - 1;
+        for (int oldSlot = 0; oldSlot < oldKeys.length; oldSlot++) {
+            if (oldUsed[oldSlot]) {
+                int slot = OpenAddressing.slot(oldKeys[oldSlot], mask);
+                while (used[slot]) {
+                    slot = slot + 1 & mask;
+                }
+                keys[slot] = oldKeys[oldSlot];
+                values[slot] = oldValues[oldSlot];
+                used[slot] = true;
+            }
+        }
+    }
+
+    /**
+     * An (int, long) consumer, which does not box its arguments
+     */
+    @FunctionalInterface
+    public interface IntLongConsumer {
+        void accept(int key, long value);
+    }
+}
@@ -0,0 +1,158 @@
+package com.oce.java8.training.collectors;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * An open-addressing (linear probing) hash map from objects to primitive long values, which neither boxes the
+ * values nor allocates an entry per key. The absent keys have the value 0.
+ */
+public final class ObjectLongMap<K> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private Object[] keys;
+    private long[] values;
+    private int size;
+
+    public ObjectLongMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ObjectLongMap(final int expectedSize) {
+        final int capacity = OpenAddressing.capacityFor(expectedSize);
+        this.keys = new Object[capacity];
+        this.values = new long[capacity];
+    }
+
+    /**
+     * Adds the given delta to the value of the given key and returns the new value
+     */
+    public long addTo(final K key, final long delta) {
+        final int slot = findOrInsert(key);
+        return values[slot] += delta;
+    }
+
+    public void increment(final K key) {
+        addTo(key, 1);
+    }
+
+    /**
+     * Sets the value of the given key and returns the previous one
+     */
+    public long put(final K key, final long value) {
+        final int slot = findOrInsert(key);
+        final long previous = values[slot];
+        values[slot] = value;
+        return previous;
+    }
+
+    public long get(final K key) {
+        final int slot = find(key);
+        return slot >= 0 ? values[slot] : 0;
+    }
+
+    public boolean containsKey(final K key) {
+        return find(key) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Adds the values of the given map to the values of this map
+     */
+    @SuppressWarnings("unchecked")
+    public ObjectLongMap<K> addAll(final ObjectLongMap<K> other) {
+        for (int slot = 0; slot < other.keys.length; slot++) {
+            if (other.keys[slot] != null) {
+                addTo((K) other.keys[slot], other.values[slot]);
+            }
+        }
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(final ObjLongConsumer<? super K> action) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != null) {
+                action.accept((K) keys[slot], values[slot]);
+            }
+        }
+    }
+
+    /**
+     * Returns a boxed copy of this map
+     */
+    public Map<K, Long> toMap() {
+        final Map<K, Long> map = new HashMap<>(OpenAddressing.capacityFor(size));
+        forEach(map::put);
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+
+    private int find(final K key) {
+        final int mask = keys.length - 1;
+        for (int slot = OpenAddressing.slot(key.hashCode(), mask); keys[slot] != null; slot = slot + 1 & mask) {
+            if (keys[slot].equals(key)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int findOrInsert(final K key) {
+        Objects.requireNonNull(key, "The keys cannot be null");
+
+        int mask = keys.length - 1;
+        int slot = OpenAddressing.slot(key.hashCode(), mask);
+        for (; keys[slot] != null; slot = slot + 1 & mask) {
+            if (keys[slot].equals(key)) {
+                return slot;
+            }
+        }
+
+        if (OpenAddressing.isFull(size + 1, keys.length)) {
+            resize();
+            mask = keys.length - 1;
+            slot = OpenAddressing.slot(key.hashCode(), mask);
+            while (keys[slot] != null) {
+                slot = slot + 1 & mask;
+            }
+        }
+
+        keys[slot] = key;
+        size++;
+        return slot;
+    }
+
+    private void resize() {
+        final Object[] oldKeys = keys;
+        final long[] oldValues = values;
+        keys = new Object[oldKeys.length * 2];
+        values = new long[oldKeys.length * 2];
+
+        final int mask = keys.length - 1;
+        for (int oldSlot = 0; oldSlot < oldKeys.length; oldSlot++) {
+            if (oldKeys[oldSlot] != null) {
+                int slot = OpenAddressing.slot(oldKeys[oldSlot].hashCode(), mask);
+                while (keys[slot] != null) {
+                    slot = slot + 1 & mask;
+                }
+                keys[slot] = oldKeys[oldSlot];
+                values[slot] = oldValues[oldSlot];
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.oce.java8.training.collectors;
+
+/**
+ * The sizing and the hashing shared by the open-addressing maps
+ */
+final class OpenAddressing {
+
+    // the maps are resized when they become more than half full, to keep the probe sequences short
+    private static final int MAX_LOAD_PERCENT = 50;
+
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private OpenAddressing() {
+    }
+
+    static int capacityFor(final int expectedSize) {
+        final long minimumCapacity = Math.max(2, (long) expectedSize * 100 / MAX_LOAD_PERCENT + 1);
+        if (minimumCapacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Too many keys: " + expectedSize);
+        }
+        return Integer.highestOneBit((int) minimumCapacity - 1) << 1;
+    }
+
+    static boolean isFull(final int size, final int capacity) {
+        if (size >= MAX_CAPACITY / 2) {
+            throw new IllegalStateException("The map cannot hold more than " + (MAX_CAPACITY / 2 - 1) + " keys");
+        }
+        return (long) size * 100 > (long) capacity * MAX_LOAD_PERCENT;
+    }
+
+    // spreads the hash codes (e.g. small sequential ints) across the whole table
+    static int slot(final int hashCode, final int mask) {
+        final int hash = hashCode * 0x9E3779B9;
+        return (hash ^ hash >>> 16) & mask;
+    }
+}
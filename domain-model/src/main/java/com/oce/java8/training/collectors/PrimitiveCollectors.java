@@ -0,0 +1,94 @@
+package com.oce.java8.training.collectors;
+
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collector;
+
+/**
+ * {@link Collector}s which accumulate in the primitive-valued open-addressing maps, instead of boxing every count
+ * and allocating a {@link java.util.HashMap} node per key. The partial maps of a parallel stream are merged by
+ * adding their values.
+ */
+public final class PrimitiveCollectors {
+
+    private PrimitiveCollectors() {
+    }
+
+    /**
+     * The primitive equivalent of {@code groupingBy(identity(), counting())}
+     */
+    public static <T> Collector<T, ?, ObjectLongMap<T>> counting() {
+        return counting(Function.identity());
+    }
+
+    /**
+     * The primitive equivalent of {@code groupingBy(classifier, counting())}
+     */
+    public static <T, K> Collector<T, ?, ObjectLongMap<K>> counting(final Function<? super T, ? extends K> classifier) {
+        return Collector.of(ObjectLongMap::new,
+                            (map, element) -> map.increment(classifier.apply(element)),
+                            PrimitiveCollectors::merge,
+                            Collector.Characteristics.UNORDERED,
+                            Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * The primitive equivalent of {@code groupingBy(classifier, summingInt(mapper))}
+     */
+    public static <T, K> Collector<T, ?, ObjectIntMap<K>> summingInt(final Function<? super T, ? extends K> classifier,
+                                                                     final ToIntFunction<? super T> mapper) {
+        return Collector.of(ObjectIntMap::new,
+                            (map, element) -> map.addTo(classifier.apply(element), mapper.applyAsInt(element)),
+                            PrimitiveCollectors::merge,
+                            Collector.Characteristics.UNORDERED,
+                            Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * The primitive equivalent of {@code toMap(keyMapper, valueMapper)}
+     *
+     * @throws IllegalStateException if two elements are mapped to the same key
+     */
+    public static <T, K> Collector<T, ?, ObjectIntMap<K>> toIntMap(final Function<? super T, ? extends K> keyMapper,
+                                                                   final ToIntFunction<? super T> valueMapper) {
+        return Collector.of(ObjectIntMap::new,
+                            (map, element) -> putUnique(map, keyMapper.apply(element), valueMapper.applyAsInt(element)),
+                            (left, right) -> {
+                                right.forEach((key, value) -> putUnique(left, key, value));
+                                return left;
+                            },
+                            Collector.Characteristics.UNORDERED,
+                            Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * Counts the elements by a primitive int key (e.g. an id), without boxing it
+     */
+    public static <T> Collector<T, ?, IntLongMap> countingInts(final ToIntFunction<? super T> classifier) {
+        return Collector.of(IntLongMap::new,
+                            (map, element) -> map.increment(classifier.applyAsInt(element)),
+                            PrimitiveCollectors::merge,
+                            Collector.Characteristics.UNORDERED,
+                            Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    // the smaller map is added to the bigger one, to minimize the (re)hashing
+    private static <K> ObjectLongMap<K> merge(final ObjectLongMap<K> left, final ObjectLongMap<K> right) {
+        return left.size() >= right.size() ? left.addAll(right) : right.addAll(left);
+    }
+
+    private static <K> ObjectIntMap<K> merge(final ObjectIntMap<K> left, final ObjectIntMap<K> right) {
+        return left.size() >= right.size() ? left.addAll(right) : right.addAll(left);
+    }
+
+    private static IntLongMap merge(final IntLongMap left, final IntLongMap right) {
+        return left.size() >= right.size() ? left.addAll(right) : right.addAll(left);
+    }
+
+    private static <K> void putUnique(final ObjectIntMap<K> map, final K key, final int value) {
+        if (map.containsKey(key)) {
+            throw new IllegalStateException("Duplicate key " + key);
+        }
+        map.put(key, value);
+    }
+}
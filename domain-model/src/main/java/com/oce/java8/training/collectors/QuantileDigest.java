@@ -0,0 +1,220 @@
+package com.oce.java8.training.collectors;
+
+import java.util.Arrays;
+
+/**
+ * A merging t-digest, which estimates the quantiles (e.g. the median or the 99th percentile) of any number of
+ * values in a few kilobytes.
+ * <p>
+ * The values are summarized as weighted centroids, kept sorted by their means; the centroids near the extremes
+ * are kept small and the ones near the median may grow, so the extreme quantiles stay accurate. The new values are
+ * buffered and merged in the centroids by batches. The digests are merged by merging their centroids, so the
+ * partial digests of a parallel stream can be combined.
+ */
+public final class QuantileDigest {
+
+    public static final double DEFAULT_COMPRESSION = 100;
+
+    private final double compression;
+
+    // the centroids, sorted by mean
+    private double[] means;
+    private double[] weights;
+    private int centroidsCount;
+
+    // the values which are not merged yet
+    private final double[] buffer;
+    private int bufferedCount;
+
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public QuantileDigest() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param compression the accuracy of the digest; it keeps up to about {@code compression} centroids
+     */
+    public QuantileDigest(final double compression) {
+        if (compression < 10) {
+            throw new IllegalArgumentException("The compression must be at least 10");
+        }
+
+        this.compression = compression;
+        final int capacity = (int) Math.ceil(compression) * 2;
+        this.means = new double[capacity];
+        this.weights = new double[capacity];
+        this.buffer = new double[(int) Math.ceil(compression) * 5];
+    }
+
+    public void add(final double value) {
+        if (Double.isNaN(value)) {
+            throw new IllegalArgumentException("NaN cannot be added to a digest");
+        }
+
+        if (bufferedCount == buffer.length) {
+            flush();
+        }
+        buffer[bufferedCount++] = value;
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Returns the estimated value below which the given fraction (between 0 and 1) of the values fall, or NaN if
+     * the digest is empty
+     */
+    public double quantile(final double fraction) {
+        if (fraction < 0 || fraction > 1) {
+            throw new IllegalArgumentException("The fraction must be between 0 and 1");
+        }
+        flush();
+        if (centroidsCount == 0) {
+            return Double.NaN;
+        }
+        if (centroidsCount == 1) {
+            return means[0];
+        }
+
+        // the mean of every centroid is placed at the middle of its weight
+        final double target = fraction * count;
+        double cumulative = 0;
+        double previousCenter = 0;
+        double previousMean = min;
+        for (int index = 0; index < centroidsCount; index++) {
+            final double center = cumulative + weights[index] / 2;
+            if (target < center) {
+                return interpolate(target, previousCenter, previousMean, center, means[index]);
+            }
+            previousCenter = center;
+            previousMean = means[index];
+            cumulative += weights[index];
+        }
+        return interpolate(target, previousCenter, previousMean, count, max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * Adds the values of the given digest to this one
+     */
+    public QuantileDigest merge(final QuantileDigest other) {
+        if (other.count == 0) {
+            return this;
+        }
+        flush();
+        other.flush();
+
+        final double[] mergedMeans = new double[centroidsCount + other.centroidsCount];
+        final double[] mergedWeights = new double[mergedMeans.length];
+        mergeSorted(means, weights, centroidsCount, other.means, other.weights, other.centroidsCount,
+                    mergedMeans, mergedWeights);
+
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        compress(mergedMeans, mergedWeights, mergedMeans.length);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("QuantileDigest{count=%d, min=%f, median=%f, p90=%f, p99=%f, max=%f}",
+                             count, min, quantile(0.5), quantile(0.9), quantile(0.99), max);
+    }
+
+    private void flush() {
+        if (bufferedCount == 0) {
+            return;
+        }
+
+        Arrays.sort(buffer, 0, bufferedCount);
+        final double[] bufferedWeights = new double[bufferedCount];
+        Arrays.fill(bufferedWeights, 1);
+
+        final double[] mergedMeans = new double[centroidsCount + bufferedCount];
+        final double[] mergedWeights = new double[mergedMeans.length];
+        mergeSorted(means, weights, centroidsCount, buffer, bufferedWeights, bufferedCount,
+                    mergedMeans, mergedWeights);
+
+        bufferedCount = 0;
+        compress(mergedMeans, mergedWeights, mergedMeans.length);
+    }
+
+    // merges the (weighted) sorted points greedily, while every centroid covers at most a unit of the scale function
+    private void compress(final double[] sortedMeans, final double[] sortedWeights, final int length) {
+        final double totalWeight = count;
+        int compressed = 0;
+        double weightBefore = 0;
+        double currentMean = sortedMeans[0];
+        double currentWeight = sortedWeights[0];
+        double limit = scale(0);
+
+        for (int index = 1; index < length; index++) {
+            final double proposedWeight = currentWeight + sortedWeights[index];
+            if (scale((weightBefore + proposedWeight) / totalWeight) - limit <= 1) {
+                currentMean += (sortedMeans[index] - currentMean) * sortedWeights[index] / proposedWeight;
+                currentWeight = proposedWeight;
+            } else {
+                compressed = append(compressed, currentMean, currentWeight);
+                weightBefore += currentWeight;
+                limit = scale(weightBefore / totalWeight);
+                currentMean = sortedMeans[index];
+                currentWeight = sortedWeights[index];
+            }
+        }
+        centroidsCount = append(compressed, currentMean, currentWeight);
+    }
+
+    private int append(final int index, final double mean, final double weight) {
+        if (index == means.length) {
+            means = Arrays.copyOf(means, index * 2);
+            weights = Arrays.copyOf(weights, index * 2);
+        }
+        means[index] = mean;
+        weights[index] = weight;
+        return index + 1;
+    }
+
+    // the k1 scale function of the t-digest, which is steep near the extremes
+    private double scale(final double quantile) {
+        return compression / (2 * Math.PI) * Math.asin(2 * Math.min(1, quantile) - 1);
+    }
+
+    private static double interpolate(final double target, final double fromPosition, final double fromValue,
+                                      final double toPosition, final double toValue) {
+        if (toPosition <= fromPosition) {
+            return toValue;
+        }
+        return fromValue + (toValue - fromValue) * (target - fromPosition) / (toPosition - fromPosition);
+    }
+
+    private static void mergeSorted(final double[] firstMeans, final double[] firstWeights, final int firstLength,
+                                    final double[] secondMeans, final double[] secondWeights, final int secondLength,
+                                    final double[] mergedMeans, final double[] mergedWeights) {
+        int first = 0;
+        int second = 0;
+        for (int index = 0; index < firstLength + secondLength; index++) {
+            if (second == secondLength || first < firstLength && firstMeans[first] <= secondMeans[second]) {
+                mergedMeans[index] = firstMeans[first];
+                mergedWeights[index] = firstWeights[first++];
+            } else {
+                mergedMeans[index] = secondMeans[second];
+                mergedWeights[index] = secondWeights[second++];
+            }
+        }
+    }
+}
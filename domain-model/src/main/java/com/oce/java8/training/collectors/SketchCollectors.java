@@ -0,0 +1,61 @@
+package com.oce.java8.training.collectors;
+
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collector;
+
+/**
+ * {@link Collector}s which accumulate in fixed size, mergeable sketches, instead of keeping every distinct value:
+ * the answers are approximate, but they need a few kilobytes whatever the size of the stream. The partial sketches
+ * of a parallel stream are merged without losing accuracy.
+ */
+public final class SketchCollectors {
+
+    // 5 rows of 2048 counters (80 KB): the frequencies are overestimated by at most 0.1% of the total, with a
+    // probability of 97%
+    private static final int FREQUENCIES_WIDTH = 2048;
+    private static final int FREQUENCIES_DEPTH = 5;
+
+    private SketchCollectors() {
+    }
+
+    /**
+     * The approximate equivalent of {@code map(mapper).distinct().count()}
+     */
+    public static <T> Collector<T, ?, HyperLogLog> distinctCount(final Function<? super T, ?> mapper) {
+        return distinctCount(mapper, HyperLogLog.DEFAULT_PRECISION);
+    }
+
+    public static <T> Collector<T, ?, HyperLogLog> distinctCount(final Function<? super T, ?> mapper,
+                                                                 final int precision) {
+        return Collector.of(() -> new HyperLogLog(precision),
+                            (sketch, element) -> sketch.add(mapper.apply(element)),
+                            HyperLogLog::merge,
+                            Collector.Characteristics.UNORDERED,
+                            Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * The approximate equivalent of {@code groupingBy(classifier, counting())}, which also keeps the given number
+     * of most frequent keys
+     */
+    public static <T, K> Collector<T, ?, CountMinSketch<K>> frequencies(final Function<? super T, ? extends K> classifier,
+                                                                        final int heavyHittersCount) {
+        return Collector.of(() -> new CountMinSketch<K>(FREQUENCIES_WIDTH, FREQUENCIES_DEPTH, heavyHittersCount),
+                            (sketch, element) -> sketch.add(classifier.apply(element)),
+                            CountMinSketch::merge,
+                            Collector.Characteristics.UNORDERED,
+                            Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * Collects the given values in a {@link QuantileDigest}, which answers their (approximate) percentiles
+     */
+    public static <T> Collector<T, ?, QuantileDigest> percentiles(final ToDoubleFunction<? super T> mapper) {
+        return Collector.of(QuantileDigest::new,
+                            (digest, element) -> digest.add(mapper.applyAsDouble(element)),
+                            QuantileDigest::merge,
+                            Collector.Characteristics.UNORDERED,
+                            Collector.Characteristics.IDENTITY_FINISH);
+    }
+}
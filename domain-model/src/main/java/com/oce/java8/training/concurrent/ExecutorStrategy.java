@@ -0,0 +1,100 @@
+package com.oce.java8.training.concurrent;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Creates the executors of the asynchronous processing, so the kind of threads which run its tasks is chosen in a
+ * single place.
+ * <p>
+ * The platform threads and work-stealing strategies use a bounded number of threads, which suits the CPU-bound
+ * tasks. The virtual threads strategy runs every task on its own virtual thread, which suits the blocking (I/O-bound)
+ * tasks: thousands of them can wait at once, without sizing a pool by hand.
+ * <p>
+ * The virtual threads need JDK 21 or later. Their implementation is in the {@code META-INF/versions/21} section of
+ * the multi-release domain-model jar, which is only used when running from that jar; when the classes are loaded from
+ * a directory (e.g. {@code target/classes}, in a reactor build or an IDE), the virtual threads are not supported,
+ * whatever the JDK.
+ */
+public interface ExecutorStrategy {
+
+    /**
+     * The system property which selects a strategy by its name: 'platform', 'work-stealing' or 'virtual'
+     */
+    String SYSTEM_PROPERTY = "executor.strategy";
+
+    /**
+     * Creates a new executor, whose threads are named after the given name
+     */
+    ExecutorService newExecutor(String name);
+
+    String getName();
+
+    default boolean isSupported() {
+        return true;
+    }
+
+    /**
+     * A fixed pool of (non daemon) platform threads
+     */
+    static ExecutorStrategy platformThreads(final int threads) {
+        return new PlatformThreadsStrategy(threads);
+    }
+
+    /**
+     * A work-stealing {@link java.util.concurrent.ForkJoinPool}, like {@code Executors.newWorkStealingPool}
+     */
+    static ExecutorStrategy workStealing(final int parallelism) {
+        return new WorkStealingStrategy(parallelism);
+    }
+
+    /**
+     * A new virtual thread per task
+     *
+     * @throws UnsupportedOperationException if the virtual threads are not supported
+     */
+    static ExecutorStrategy virtualThreads() {
+        final ExecutorStrategy virtualThreads = new VirtualThreadsStrategy();
+        if (!virtualThreads.isSupported()) {
+            throw new UnsupportedOperationException("The virtual threads need JDK 21 or later, and the multi-release " +
+                    "domain-model jar");
+        }
+        return virtualThreads;
+    }
+
+    /**
+     * The virtual threads, if they are supported, or else a fixed pool of the given number of platform threads
+     */
+    static ExecutorStrategy forBlockingTasks(final int fallbackThreads) {
+        final ExecutorStrategy virtualThreads = new VirtualThreadsStrategy();
+        return virtualThreads.isSupported() ? virtualThreads : platformThreads(fallbackThreads);
+    }
+
+    /**
+     * Returns the strategy selected by the {@link #SYSTEM_PROPERTY} system property, or the given default one if it
+     * is not set
+     *
+     * @param threads the number of threads of the selected platform threads or work-stealing strategy
+     */
+    static ExecutorStrategy fromSystemProperty(final ExecutorStrategy defaultStrategy, final int threads) {
+        final String name = System.getProperty(SYSTEM_PROPERTY);
+        if (name == null) {
+            return defaultStrategy;
+        }
+
+        switch (name) {
+            case PlatformThreadsStrategy.NAME:
+                return platformThreads(threads);
+            case WorkStealingStrategy.NAME:
+                return workStealing(threads);
+            case VirtualThreadsStrategy.NAME:
+                final ExecutorStrategy virtualThreads = new VirtualThreadsStrategy();
+                if (!virtualThreads.isSupported()) {
+                    throw new IllegalArgumentException("The '" + name + "' executor strategy needs JDK 21 or later, " +
+                            "and the multi-release domain-model jar");
+                }
+                return virtualThreads;
+            default:
+                throw new IllegalArgumentException("There's no executor strategy named '" + name + "'");
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.oce.java8.training.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Runs a task per key (fork) and folds their results, in their completion order, in a single aggregate (join), within
+ * an overall deadline.
+ * <p>
+ * At most {@code maxInFlightTasks} tasks are submitted at once, the next ones being submitted as the others complete.
+ * The running aggregate is reported after every result, so the callers can use the partial results right away. When
+ * the deadline passes, the remaining tasks are cancelled (interrupted) and the final {@link Aggregate} reports exactly
+ * which keys did not answer, instead of silently ignoring them.
+ */
+public final class FanOutAggregator {
+
+    private final ExecutorService executor;
+    private final int maxInFlightTasks;
+    private final long timeoutNanos;
+
+    /**
+     * @param executor         runs the tasks
+     * @param maxInFlightTasks the maximum number of tasks which are submitted and not completed
+     * @param timeout          the deadline of the whole aggregation
+     */
+    public FanOutAggregator(final ExecutorService executor, final int maxInFlightTasks, final long timeout,
+                            final TimeUnit unit) {
+        if (maxInFlightTasks <= 0 || timeout <= 0) {
+            throw new IllegalArgumentException("The in-flight tasks limit and the timeout must be positive");
+        }
+
+        this.executor = executor;
+        this.maxInFlightTasks = maxInFlightTasks;
+        this.timeoutNanos = unit.toNanos(timeout);
+    }
+
+    /**
+     * Runs the task of every key and aggregates their results, until all of them completed or the deadline passed
+     *
+     * @param taskFactory    creates the task of a key
+     * @param identity       the aggregate of no results
+     * @param accumulator    adds a result to the aggregate
+     * @param partialResults receives every key which answered, with the running aggregate
+     * @throws InterruptedException if the waiting thread is interrupted; the remaining tasks are cancelled
+     */
+    public <K, V, A> Aggregate<K, A> aggregate(final Collection<? extends K> keys,
+                                               final Function<? super K, ? extends Callable<V>> taskFactory,
+                                               final A identity, final BiFunction<A, ? super V, A> accumulator,
+                                               final BiConsumer<? super K, ? super A> partialResults)
+            throws InterruptedException {
+        final long start = System.nanoTime();
+        final long deadline = start + timeoutNanos;
+        final ExecutorCompletionService<V> completionService = new ExecutorCompletionService<>(executor);
+        // the futures do not override equals, so they are compared by identity; the map keeps the submission order
+        final Map<Future<V>, K> inFlightTasks = new LinkedHashMap<>();
+        final Iterator<? extends K> pendingKeys = keys.iterator();
+
+        A aggregate = identity;
+        final List<K> completedKeys = new ArrayList<>(keys.size());
+        final Map<K, Throwable> failures = new LinkedHashMap<>();
+        try {
+            submitNextTasks(pendingKeys, taskFactory, completionService, inFlightTasks);
+
+            boolean deadlinePassed = false;
+            while (!inFlightTasks.isEmpty()) {
+                final long remaining = deadline - System.nanoTime();
+                Future<V> completed = !deadlinePassed && remaining > 0
+                        ? completionService.poll(remaining, TimeUnit.NANOSECONDS)
+                        : null;
+                if (completed == null) {
+                    // the deadline passed: the tasks which already completed are still aggregated, without waiting
+                    deadlinePassed = true;
+                    completed = completionService.poll();
+                    if (completed == null) {
+                        break;
+                    }
+                }
+
+                final K key = inFlightTasks.remove(completed);
+                try {
+                    aggregate = accumulator.apply(aggregate, completed.get());
+                    completedKeys.add(key);
+                    partialResults.accept(key, aggregate);
+                } catch (final ExecutionException e) {
+                    failures.put(key, e.getCause());
+                }
+
+                if (!deadlinePassed) {
+                    submitNextTasks(pendingKeys, taskFactory, completionService, inFlightTasks);
+                }
+            }
+        } finally {
+            inFlightTasks.keySet().forEach(straggler -> straggler.cancel(true));
+        }
+
+        // the keys which did not answer in time, followed by the ones which were never submitted
+        final List<K> missingKeys = new ArrayList<>(inFlightTasks.values());
+        pendingKeys.forEachRemaining(missingKeys::add);
+
+        final long elapsedNanos = System.nanoTime() - start;
+        return new Aggregate<>(aggregate, completedKeys, failures, missingKeys, elapsedNanos);
+    }
+
+    private <K, V> void submitNextTasks(final Iterator<? extends K> pendingKeys,
+                                        final Function<? super K, ? extends Callable<V>> taskFactory,
+                                        final ExecutorCompletionService<V> completionService,
+                                        final Map<Future<V>, K> inFlightTasks) {
+        while (inFlightTasks.size() < maxInFlightTasks && pendingKeys.hasNext()) {
+            final K key = pendingKeys.next();
+            inFlightTasks.put(completionService.submit(taskFactory.apply(key)), key);
+        }
+    }
+
+    /**
+     * The outcome of an aggregation: the aggregate of the received results and the keys which did not provide one
+     */
+    public static final class Aggregate<K, A> {
+
+        private final A value;
+        private final List<K> completedKeys;
+        private final Map<K, Throwable> failures;
+        private final List<K> missingKeys;
+        private final long elapsedNanos;
+
+        private Aggregate(final A value, final List<K> completedKeys, final Map<K, Throwable> failures,
+                          final List<K> missingKeys, final long elapsedNanos) {
+            this.value = value;
+            this.completedKeys = Collections.unmodifiableList(completedKeys);
+            this.failures = Collections.unmodifiableMap(failures);
+            this.missingKeys = Collections.unmodifiableList(missingKeys);
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Returns the aggregate of the received results, which is partial if any key is missing or failed
+         */
+        public A getValue() {
+            return value;
+        }
+
+        /**
+         * Returns the keys whose results are aggregated, in their completion order
+         */
+        public List<K> getCompletedKeys() {
+            return completedKeys;
+        }
+
+        /**
+         * Returns the keys whose tasks failed, with their exceptions
+         */
+        public Map<K, Throwable> getFailures() {
+            return failures;
+        }
+
+        /**
+         * Returns the keys which did not answer before the deadline, including the ones which were never submitted
+         */
+        public List<K> getMissingKeys() {
+            return missingKeys;
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        /**
+         * Returns true if the results of all the keys are aggregated
+         */
+        public boolean isComplete() {
+            return failures.isEmpty() && missingKeys.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return "Aggregate{value=" + value + ", completed=" + completedKeys.size() + ", failures=" +
+                    failures.keySet() + ", missing=" + missingKeys + ", elapsedMillis=" + getElapsedMillis() + "}";
+        }
+    }
+}
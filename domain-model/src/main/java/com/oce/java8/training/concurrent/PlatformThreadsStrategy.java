@@ -0,0 +1,39 @@
+package com.oce.java8.training.concurrent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the tasks on a fixed pool of platform threads
+ */
+final class PlatformThreadsStrategy implements ExecutorStrategy {
+
+    static final String NAME = "platform";
+
+    private final int threads;
+
+    PlatformThreadsStrategy(final int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("The number of threads must be positive");
+        }
+        this.threads = threads;
+    }
+
+    @Override
+    public ExecutorService newExecutor(final String name) {
+        final AtomicInteger threadsCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable ->
+                new Thread(runnable, name + "-" + threadsCount.incrementAndGet()));
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String toString() {
+        return NAME + "(" + threads + ")";
+    }
+}
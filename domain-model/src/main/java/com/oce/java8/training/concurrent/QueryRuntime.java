@@ -0,0 +1,162 @@
+package com.oce.java8.training.concurrent;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the (parallel stream) queries of several tenants on isolated, bounded {@link ForkJoinPool}s.
+ * <p>
+ * A parallel stream which is started from a fork / join worker thread runs its tasks on the pool of that thread,
+ * so a query submitted here never uses the common pool. Every tenant has its own pool, with its own parallelism
+ * cap, and a limit for its in-flight (running and queued) queries; a query which exceeds that limit is rejected
+ * right away, instead of queueing behind the others.
+ */
+public final class QueryRuntime implements AutoCloseable {
+
+    private final Map<String, TenantPool> tenants = new ConcurrentHashMap<>();
+
+    private volatile boolean closed;
+
+    /**
+     * Registers a tenant, with its own pool
+     *
+     * @param parallelism        the maximum number of threads which run the queries of the tenant
+     * @param maxInFlightQueries the maximum number of queries of the tenant which can be running or queued
+     */
+    public void addTenant(final String tenant, final int parallelism, final int maxInFlightQueries) {
+        if (parallelism <= 0 || maxInFlightQueries <= 0) {
+            throw new IllegalArgumentException("The parallelism and the in-flight queries limit must be positive");
+        }
+        if (closed) {
+            throw new IllegalStateException("The query runtime is closed");
+        }
+
+        final TenantPool pool = new TenantPool(tenant, parallelism, maxInFlightQueries);
+        if (tenants.putIfAbsent(tenant, pool) != null) {
+            pool.forkJoinPool.shutdown();
+            throw new IllegalArgumentException("The tenant '" + tenant + "' is already registered");
+        }
+        // a concurrent shutdown may have shut the pools down before this one was registered
+        if (closed) {
+            tenants.remove(tenant, pool);
+            pool.forkJoinPool.shutdown();
+            throw new IllegalStateException("The query runtime is closed");
+        }
+    }
+
+    /**
+     * Runs the given query on the pool of the given tenant
+     *
+     * @throws RejectedExecutionException if the tenant already has its maximum number of in-flight queries
+     */
+    public <T> CompletableFuture<T> submit(final String tenant, final Supplier<T> query) {
+        final TenantPool pool = getPool(tenant);
+        if (!pool.permits.tryAcquire()) {
+            throw new RejectedExecutionException("The tenant '" + tenant + "' has too many in-flight queries");
+        }
+
+        try {
+            final CompletableFuture<T> result = CompletableFuture.supplyAsync(query, pool.forkJoinPool);
+            result.whenComplete((value, exception) -> pool.permits.release());
+            return result;
+        } catch (final RejectedExecutionException e) {
+            pool.permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Runs the given query on the pool of the given tenant and waits for its result
+     */
+    public <T> T execute(final String tenant, final Supplier<T> query) {
+        try {
+            return submit(tenant, query).join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    public int getParallelism(final String tenant) {
+        return getPool(tenant).forkJoinPool.getParallelism();
+    }
+
+    /**
+     * Returns the number of queries of the given tenant which are running or queued
+     */
+    public int getInFlightQueries(final String tenant) {
+        final TenantPool pool = getPool(tenant);
+        return pool.maxInFlightQueries - pool.permits.availablePermits();
+    }
+
+    /**
+     * Stops accepting queries and waits (up to the given timeout) for the running ones, before interrupting them
+     *
+     * @return true if all the queries finished in time
+     */
+    public boolean shutdown(final long timeout, final TimeUnit unit) throws InterruptedException {
+        closed = true;
+        tenants.values().forEach(pool -> pool.forkJoinPool.shutdown());
+
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean terminated = true;
+        for (final TenantPool pool : tenants.values()) {
+            final long remaining = deadline - System.nanoTime();
+            if (!pool.forkJoinPool.awaitTermination(Math.max(remaining, 0), TimeUnit.NANOSECONDS)) {
+                pool.forkJoinPool.shutdownNow();
+                terminated = false;
+            }
+        }
+        return terminated;
+    }
+
+    @Override
+    public void close() {
+        try {
+            shutdown(10, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            tenants.values().forEach(pool -> pool.forkJoinPool.shutdownNow());
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private TenantPool getPool(final String tenant) {
+        final TenantPool pool = tenants.get(tenant);
+        if (pool == null) {
+            throw new IllegalArgumentException("There's no tenant named '" + tenant + "'");
+        }
+        if (closed) {
+            throw new RejectedExecutionException("The query runtime is closed");
+        }
+        return pool;
+    }
+
+    private static final class TenantPool {
+
+        private final ForkJoinPool forkJoinPool;
+        private final Semaphore permits;
+        private final int maxInFlightQueries;
+
+        TenantPool(final String tenant, final int parallelism, final int maxInFlightQueries) {
+            final AtomicInteger threadsCount = new AtomicInteger();
+            this.forkJoinPool = new ForkJoinPool(parallelism, pool -> {
+                final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName(tenant + "-query-" + threadsCount.incrementAndGet());
+                return thread;
+            }, null, false);
+            this.permits = new Semaphore(maxInFlightQueries);
+            this.maxInFlightQueries = maxInFlightQueries;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.oce.java8.training.concurrent;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Runs every task on its own virtual thread.
+ * <p>
+ * This is the JDK 1.8 version, which does not support them; on JDK 21 or later, the multi-release jar provides the
+ * version in {@code src/main/java21} instead.
+ */
+final class VirtualThreadsStrategy implements ExecutorStrategy {
+
+    static final String NAME = "virtual";
+
+    @Override
+    public ExecutorService newExecutor(final String name) {
+        throw new UnsupportedOperationException("The virtual threads need JDK 21 or later");
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isSupported() {
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return NAME;
+    }
+}
@@ -0,0 +1,44 @@
+package com.oce.java8.training.concurrent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the tasks on a work-stealing {@link ForkJoinPool}, in FIFO (async) mode, like
+ * {@code Executors.newWorkStealingPool}
+ */
+final class WorkStealingStrategy implements ExecutorStrategy {
+
+    static final String NAME = "work-stealing";
+
+    private final int parallelism;
+
+    WorkStealingStrategy(final int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("The parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public ExecutorService newExecutor(final String name) {
+        final AtomicInteger threadsCount = new AtomicInteger();
+        return new ForkJoinPool(parallelism, pool -> {
+            final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(name + "-" + threadsCount.incrementAndGet());
+            return thread;
+        }, null, true);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String toString() {
+        return NAME + "(" + parallelism + ")";
+    }
+}
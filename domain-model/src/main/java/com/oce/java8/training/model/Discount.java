@@ -23,6 +23,20 @@ public class Discount {
         Value
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Discount)) return false;
+        Discount discount = (Discount) o;
+        return value == discount.value &&
+                discountType == discount.discountType;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * value + (discountType != null ? discountType.ordinal() + 1 : 0);
+    }
+
     @Override
     public String toString() {
         return value + " " + discountType;
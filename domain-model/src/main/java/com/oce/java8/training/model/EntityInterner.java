@@ -0,0 +1,274 @@
+package com.oce.java8.training.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * A canonicalizing (hash-consing) factory for the immutable entities.
+ * <p>
+ * Interning an entity returns the single, canonical instance of all the structurally identical entities (all the
+ * fields are compared, not only the ones used by {@code equals}). The components are interned first, so the
+ * canonical entities are compared by the identity of their components, and equal interned entities are the same
+ * instance, for which {@code equals} returns on its first check.
+ * <p>
+ * The canonical product lists and the section and manager sets are keyed by the identity of their (canonical)
+ * elements, as the entities' {@code equals} ignores some of their fields (e.g. the discount and tags of a product).
+ * The canonical lists and sets are unmodifiable, as they are shared by all the interned entities. An interner keeps
+ * its entities as long as it is referenced, so it should be scoped to an import or to a set of related stores.
+ */
+public final class EntityInterner {
+
+    private final ConcurrentMap<Object, Object> canonical = new ConcurrentHashMap<>();
+
+    public String intern(final String value) {
+        return value != null ? canonical(value, value) : null;
+    }
+
+    public Discount intern(final Discount discount) {
+        return discount != null ? canonical(discount, discount) : null;
+    }
+
+    public Manager intern(final Manager manager) {
+        if (manager == null) {
+            return null;
+        }
+
+        final String name = intern(manager.getName());
+        return canonical(new Key(Kind.Manager, manager.getId(), 0, name, null, null, null),
+                         () -> name == manager.getName() ? manager : new Manager(manager.getId(), name));
+    }
+
+    public Product intern(final Product product) {
+        if (product == null) {
+            return null;
+        }
+
+        final String name = intern(product.getName());
+        final Discount discount = intern(product.getDiscount().orElse(null));
+        final List<String> originalTags = product.getTags().orElse(null);
+        final List<String> tags = internTags(originalTags);
+
+        final boolean sameComponents = name == product.getName() && discount == product.getDiscount().orElse(null)
+                && tags == originalTags;
+        return canonical(new Key(Kind.Product, product.getId(), product.getPrice(), name, discount, tags, null),
+                         () -> sameComponents ? product
+                                              : new Product(product.getId(), name, product.getPrice(), discount,
+                                                            tags));
+    }
+
+    public Section intern(final Section section) {
+        if (section == null) {
+            return null;
+        }
+
+        final List<Product> products = internProducts(section.getProducts().orElse(null));
+        return canonical(new Key(Kind.Section, section.getId(), 0, section.getName(), products, null, null),
+                         () -> new Section(section.getId(), section.getName(), products));
+    }
+
+    public Store intern(final Store store) {
+        if (store == null) {
+            return null;
+        }
+
+        final Set<Section> sections = internSet(store.getStoreSections(), this::intern);
+        final Set<Manager> managers = internSet(store.getStoreManagers(), this::intern);
+        final String name = intern(store.getName());
+        final String location = intern(store.getLocation());
+
+        return canonical(new Key(Kind.Store, store.getId(), 0, name, location, sections, managers),
+                         () -> new Store(store.getId(), name, location, sections, managers));
+    }
+
+    /**
+     * Returns the number of canonical instances (entities, strings, lists and sets) held by this interner
+     */
+    public int size() {
+        return canonical.size();
+    }
+
+    private List<Product> internProducts(final List<Product> products) {
+        if (products == null) {
+            return null;
+        }
+
+        final List<Product> internedProducts = new ArrayList<>(products.size());
+        products.forEach(product -> internedProducts.add(intern(product)));
+        return canonical(new IdentityListKey(internedProducts), () -> Collections.unmodifiableList(internedProducts));
+    }
+
+    private List<String> internTags(final List<String> tags) {
+        if (tags == null) {
+            return null;
+        }
+
+        final List<String> internedTags = new ArrayList<>(tags.size());
+        tags.forEach(tag -> internedTags.add(intern(tag)));
+        return canonical(internedTags, () -> Collections.unmodifiableList(internedTags));
+    }
+
+    private <T> Set<T> internSet(final Set<T> values, final UnaryOperator<T> interner) {
+        if (values == null) {
+            return null;
+        }
+
+        final Set<T> internedValues = new HashSet<>();
+        values.forEach(value -> internedValues.add(interner.apply(value)));
+        return canonical(new IdentitySetKey(internedValues), () -> Collections.unmodifiableSet(internedValues));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T canonical(final Object key, final T candidate) {
+        final Object existing = canonical.putIfAbsent(key, candidate);
+        return existing != null ? (T) existing : candidate;
+    }
+
+    // the candidate entity is only built if there's no canonical one yet; unlike computeIfAbsent, a lookup of an
+    // existing entity does not lock (on JDK 1.8)
+    @SuppressWarnings("unchecked")
+    private <T> T canonical(final Object key, final Supplier<T> candidate) {
+        final Object existing = canonical.get(key);
+        return existing != null ? (T) existing : canonical(key, candidate.get());
+    }
+
+    private enum Kind {
+        Manager,
+        Product,
+        Section,
+        Store
+    }
+
+    /**
+     * The structural identity of an entity, whose (already canonical) components are compared by identity
+     */
+    private static final class Key {
+
+        private final Kind kind;
+        private final int id;
+        private final double price;
+        private final Object first;
+        private final Object second;
+        private final Object third;
+        private final Object fourth;
+        private final int hash;
+
+        Key(final Kind kind, final int id, final double price, final Object first, final Object second,
+            final Object third, final Object fourth) {
+            this.kind = kind;
+            this.id = id;
+            this.price = price;
+            this.first = first;
+            this.second = second;
+            this.third = third;
+            this.fourth = fourth;
+
+            int result = 31 * kind.ordinal() + id;
+            result = 31 * result + Double.hashCode(price);
+            result = 31 * result + componentHash(first);
+            result = 31 * result + componentHash(second);
+            result = 31 * result + componentHash(third);
+            this.hash = 31 * result + componentHash(fourth);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return hash == key.hash && kind == key.kind && id == key.id &&
+                    Double.compare(price, key.price) == 0 &&
+                    first == key.first && second == key.second && third == key.third && fourth == key.fourth;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        private static int componentHash(final Object value) {
+            // the enums are hashed by their ordinal; the other components are canonical instances
+            return value instanceof Enum ? ((Enum<?>) value).ordinal() : Objects.hashCode(value);
+        }
+    }
+
+    /**
+     * A list of canonical elements, compared element by element by identity
+     */
+    private static final class IdentityListKey {
+
+        private final List<?> elements;
+        private final int hash;
+
+        IdentityListKey(final List<?> elements) {
+            this.elements = elements;
+
+            int result = 1;
+            for (final Object element : elements) {
+                result = 31 * result + System.identityHashCode(element);
+            }
+            this.hash = result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof IdentityListKey)) return false;
+            IdentityListKey key = (IdentityListKey) o;
+            if (hash != key.hash || elements.size() != key.elements.size()) {
+                return false;
+            }
+            for (int index = 0; index < elements.size(); index++) {
+                if (elements.get(index) != key.elements.get(index)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * A set of canonical elements, compared by the identity of its elements, whatever their order
+     */
+    private static final class IdentitySetKey {
+
+        private final Set<Object> elements = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final int hash;
+
+        IdentitySetKey(final Set<?> elements) {
+            this.elements.addAll(elements);
+
+            int result = 0;
+            for (final Object element : elements) {
+                result += System.identityHashCode(element);
+            }
+            this.hash = result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof IdentitySetKey)) return false;
+            IdentitySetKey key = (IdentitySetKey) o;
+            return hash == key.hash && elements.size() == key.elements.size() && elements.containsAll(key.elements);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
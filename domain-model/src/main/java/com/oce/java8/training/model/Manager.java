@@ -7,6 +7,8 @@ public class Manager extends AbstractEntity {
     private final int id;
     private final String name;
 
+    private transient int hash;
+
     public Manager(final int id, final String name) {
         this.id = id;
         this.name = name;
@@ -25,12 +27,18 @@ public class Manager extends AbstractEntity {
         if (this == o) return true;
         if (!(o instanceof Manager)) return false;
         Manager manager = (Manager) o;
+        if (hash != 0 && manager.hash != 0 && hash != manager.hash) return false;
         return id == manager.id &&
                 Objects.equals(name, manager.name);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, name);
+        int result = hash;
+        if (result == 0) {
+            result = 31 * id + Objects.hashCode(name);
+            hash = result;
+        }
+        return result;
     }
 }
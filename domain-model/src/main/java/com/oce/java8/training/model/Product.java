@@ -12,6 +12,9 @@ public class Product extends AbstractEntity {
     private final Discount discount;
     private final List<String> tags;
 
+    // the hash code is computed once, on the first use (0 means not computed yet)
+    private transient int hash;
+
     public Product(final int id, final String name, final double price, final Discount discount,
                    final List<String> tags) {
         this.id = id;
@@ -62,14 +65,20 @@ public class Product extends AbstractEntity {
         if (this == o) return true;
         if (!(o instanceof Product)) return false;
         Product product = (Product) o;
+        if (hash != 0 && product.hash != 0 && hash != product.hash) return false;
         return id == product.id &&
                 Objects.equals(name, product.name) &&
-                Objects.equals(price, product.price);
+                Double.compare(price, product.price) == 0;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, name, price);
+        int result = hash;
+        if (result == 0) {
+            result = 31 * (31 * id + Objects.hashCode(name)) + Double.hashCode(price);
+            hash = result;
+        }
+        return result;
     }
 
     @Override
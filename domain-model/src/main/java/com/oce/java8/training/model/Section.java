@@ -10,6 +10,8 @@ public class Section extends AbstractEntity {
     private final StoreSection name;
     private final List<Product> products;
 
+    private transient int hash;
+
     public Section(final int id, final StoreSection name, final List<Product> products) {
         this.id = id;
         this.name = name;
@@ -33,12 +35,19 @@ public class Section extends AbstractEntity {
         if (this == o) return true;
         if (!(o instanceof Section)) return false;
         Section that = (Section) o;
+        if (hash != 0 && that.hash != 0 && hash != that.hash) return false;
         return id == that.id &&
                 Objects.equals(name, that.name);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, name);
+        int result = hash;
+        if (result == 0) {
+            // the enum ordinal (unlike the enum identity hash code) is the same in every JVM
+            result = 31 * id + (name != null ? name.ordinal() + 1 : 0);
+            hash = result;
+        }
+        return result;
     }
 }
@@ -2,6 +2,9 @@ package com.oce.java8.training.model;
 
 import java.util.Objects;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class Store extends AbstractEntity {
 
@@ -11,6 +14,8 @@ public class Store extends AbstractEntity {
     private final Set<Section> storeSections;
     private final Set<Manager> storeManagers;
 
+    private transient int hash;
+
     public Store(final int id, final String name, final String location,
                  final Set<Section> storeSections, final Set<Manager> storeManagers) {
         this.id = id;
@@ -40,17 +45,42 @@ public class Store extends AbstractEntity {
         return storeSections;
     }
 
+    /**
+     * Returns a sized {@link Spliterator} over the products of all the sections, which splits evenly across and
+     * within the sections. The sections are snapshotted when the spliterator is created.
+     */
+    public Spliterator<Product> productsSpliterator() {
+        return StoreProductsSpliterator.of(this);
+    }
+
+    /**
+     * Returns a stream of the products from all the sections, without a {@code flatMap} over the sections
+     */
+    public Stream<Product> products() {
+        return StreamSupport.stream(productsSpliterator(), false);
+    }
+
+    public Stream<Product> parallelProducts() {
+        return StreamSupport.stream(productsSpliterator(), true);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof Store)) return false;
         Store store = (Store) o;
+        if (hash != 0 && store.hash != 0 && hash != store.hash) return false;
         return id == store.id &&
                 Objects.equals(name, store.name);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, name);
+        int result = hash;
+        if (result == 0) {
+            result = 31 * id + Objects.hashCode(name);
+            hash = result;
+        }
+        return result;
     }
 }
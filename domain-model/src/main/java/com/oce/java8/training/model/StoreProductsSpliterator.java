@@ -0,0 +1,136 @@
+package com.oce.java8.training.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A {@link Spliterator} over all the {@link Product}s of a {@link Store}, which knows the size of every section up
+ * front. It splits the flat [origin, fence) product range in two equal halves, regardless of the section boundaries,
+ * so a parallel traversal is balanced even when a single section holds most of the products.
+ */
+final class StoreProductsSpliterator implements Spliterator<Product> {
+
+    // a random access list of random access lists
+    private final List<List<Product>> sections;
+    // the flat index of the first product of each section, plus the total size as the last element
+    private final long[] offsets;
+
+    private long origin;
+    private final long fence;
+
+    // the section and the section index of the origin product
+    private int section;
+    private int index;
+
+    private StoreProductsSpliterator(final List<List<Product>> sections, final long[] offsets, final long origin,
+                                     final long fence) {
+        this.sections = sections;
+        this.offsets = offsets;
+        this.origin = origin;
+        this.fence = fence;
+        moveTo(origin);
+    }
+
+    static StoreProductsSpliterator of(final Store store) {
+        final List<List<Product>> sections = new ArrayList<>();
+        for (final Section section : store.getStoreSections()) {
+            section.getProducts()
+                   .filter(products -> !products.isEmpty())
+                   .ifPresent(products -> sections.add(products instanceof RandomAccess ? products
+                                                                                        : new ArrayList<>(products)));
+        }
+
+        final long[] offsets = new long[sections.size() + 1];
+        for (int index = 0; index < sections.size(); index++) {
+            offsets[index + 1] = offsets[index] + sections.get(index).size();
+        }
+
+        return new StoreProductsSpliterator(sections, offsets, 0, offsets[offsets.length - 1]);
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super Product> action) {
+        if (origin >= fence) {
+            return false;
+        }
+
+        final List<Product> products = sections.get(section);
+        final Product product = products.get(index);
+        origin++;
+        if (++index == products.size()) {
+            section++;
+            index = 0;
+        }
+        action.accept(product);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(final Consumer<? super Product> action) {
+        long remaining = fence - origin;
+        while (remaining > 0) {
+            final List<Product> products = sections.get(section);
+            final int end = (int) Math.min(products.size(), index + remaining);
+            for (int current = index; current < end; current++) {
+                action.accept(products.get(current));
+            }
+
+            remaining -= end - index;
+            if (end == products.size()) {
+                section++;
+                index = 0;
+            } else {
+                index = end;
+            }
+        }
+        origin = fence;
+    }
+
+    @Override
+    public Spliterator<Product> trySplit() {
+        final long middle = (origin + fence) >>> 1;
+        if (middle <= origin) {
+            return null;
+        }
+
+        final Spliterator<Product> prefix = new StoreProductsSpliterator(sections, offsets, origin, middle);
+        moveTo(middle);
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return fence - origin;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED;
+    }
+
+    private void moveTo(final long position) {
+        origin = position;
+        if (position >= offsets[offsets.length - 1]) {
+            section = sections.size();
+            index = 0;
+            return;
+        }
+
+        // the last section which starts at or before the position
+        int low = 0;
+        int high = sections.size() - 1;
+        while (low < high) {
+            final int middle = (low + high + 1) >>> 1;
+            if (offsets[middle] <= position) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        section = low;
+        index = (int) (position - offsets[low]);
+    }
+}
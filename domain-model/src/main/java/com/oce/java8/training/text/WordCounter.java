@@ -0,0 +1,135 @@
+package com.oce.java8.training.text;
+
+import com.oce.java8.training.collectors.BytesLongMap;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts the words of (arbitrarily large) UTF-8 text files, without reading them in the heap.
+ * <p>
+ * The file is split in chunks of roughly the same size, each one ending on a delimiter, so no word crosses two
+ * chunks; the chunks are memory-mapped and tokenized in parallel, straight from the mapped bytes, in a
+ * {@link BytesLongMap} per worker, and the partial counts are merged at the end.
+ * <p>
+ * A word is a maximal run of ASCII letters, ASCII digits and non-ASCII bytes; all the other ASCII bytes (spaces,
+ * line breaks, punctuation) are delimiters. As the UTF-8 encoded characters never contain ASCII bytes, a chunk
+ * boundary never splits a character. The words are case sensitive.
+ */
+public final class WordCounter {
+
+    private static final int DEFAULT_CHUNK_SIZE = 32 << 20;
+
+    private static final int BOUNDARY_SCAN_SIZE = 4096;
+
+    private static final boolean[] DELIMITERS = new boolean[128];
+
+    static {
+        for (int value = 0; value < DELIMITERS.length; value++) {
+            DELIMITERS[value] = !Character.isLetterOrDigit(value);
+        }
+    }
+
+    private WordCounter() {
+    }
+
+    public static BytesLongMap countWords(final Path file) throws IOException {
+        return countWords(file, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Counts the words of the given file, tokenizing chunks of (about) the given size in parallel
+     */
+    public static BytesLongMap countWords(final Path file, final int chunkSize) throws IOException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("The chunk size must be positive");
+        }
+
+        // the mappings stay valid after the channel is closed
+        final List<ByteBuffer> chunks;
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            chunks = split(channel, chunkSize);
+        }
+
+        return chunks.parallelStream()
+                     .collect(BytesLongMap::new, WordCounter::tokenize, BytesLongMap::addAll);
+    }
+
+    /**
+     * Counts the words between the position and the limit of the given buffer
+     */
+    public static BytesLongMap countWords(final ByteBuffer text) {
+        final BytesLongMap counts = new BytesLongMap();
+        tokenize(counts, text);
+        return counts;
+    }
+
+    private static boolean isDelimiter(final byte value) {
+        return value >= 0 && DELIMITERS[value];
+    }
+
+    private static List<ByteBuffer> split(final FileChannel channel, final int chunkSize) throws IOException {
+        final long fileSize = channel.size();
+        final List<ByteBuffer> chunks = new ArrayList<>((int) Math.min(fileSize / chunkSize + 1, Integer.MAX_VALUE));
+        final ByteBuffer scanBuffer = ByteBuffer.allocate(BOUNDARY_SCAN_SIZE);
+
+        long start = 0;
+        while (start < fileSize) {
+            long end = Math.min(start + chunkSize, fileSize);
+            if (end < fileSize) {
+                end = nextDelimiter(channel, end, fileSize, scanBuffer);
+            }
+            if (end - start > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("The file has a word longer than 2 GB, at " + start);
+            }
+
+            chunks.add(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+            start = end;
+        }
+        return chunks;
+    }
+
+    // the position of the first delimiter at or after the given one (or the file size)
+    private static long nextDelimiter(final FileChannel channel, long position, final long fileSize,
+                                      final ByteBuffer scanBuffer) throws IOException {
+        while (position < fileSize) {
+            // Buffer.clear, as ByteBuffer.clear only exists since JDK 9
+            ((Buffer) scanBuffer).clear();
+            final int read = channel.read(scanBuffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int index = 0; index < read; index++) {
+                if (isDelimiter(scanBuffer.get(index))) {
+                    return position + index;
+                }
+            }
+            position += read;
+        }
+        return fileSize;
+    }
+
+    private static void tokenize(final BytesLongMap counts, final ByteBuffer chunk) {
+        int wordStart = -1;
+        for (int index = chunk.position(), end = chunk.limit(); index < end; index++) {
+            if (isDelimiter(chunk.get(index))) {
+                if (wordStart >= 0) {
+                    counts.increment(chunk, wordStart, index - wordStart);
+                    wordStart = -1;
+                }
+            } else if (wordStart < 0) {
+                wordStart = index;
+            }
+        }
+
+        if (wordStart >= 0) {
+            counts.increment(chunk, wordStart, chunk.limit() - wordStart);
+        }
+    }
+}
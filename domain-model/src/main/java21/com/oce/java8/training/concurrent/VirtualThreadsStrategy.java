@@ -0,0 +1,38 @@
+package com.oce.java8.training.concurrent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs every task on its own virtual thread.
+ * <p>
+ * This is the JDK 21 version of the class, packaged in the {@code META-INF/versions/21} section of the
+ * multi-release jar; a blocked virtual thread releases its carrier thread, so any number of blocking tasks can run
+ * at once.
+ */
+final class VirtualThreadsStrategy implements ExecutorStrategy {
+
+    static final String NAME = "virtual";
+
+    @Override
+    public ExecutorService newExecutor(final String name) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual()
+                                                        .name(name + "-", 1)
+                                                        .factory());
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isSupported() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return NAME;
+    }
+}
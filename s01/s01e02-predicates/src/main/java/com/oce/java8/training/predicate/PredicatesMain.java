@@ -1,5 +1,7 @@
 package com.oce.java8.training.predicate;
 
+import com.oce.java8.training.bootstrap.StoreSetup;
+import com.oce.java8.training.catalog.QueryPlan;
 import com.oce.java8.training.model.Product;
 import com.oce.java8.training.predicate.service.ProductService;
 
@@ -82,6 +84,15 @@ public class PredicatesMain {
         final List<Product> products = productService.getNexusTablets();
         System.out.println("There are " + products.size() + " Nexus tablets");
 
+        // the repeated query is answered from the cache, until the catalog changes
+        productService.getNexusTablets();
+        System.out.println(StoreSetup.getDefaultQueryCache());
+
+        // a predicate tree, reordered by the planner from the catalog statistics
+        final QueryPlan plan = productService.planCheapSamsungTablets(400);
+        System.out.println(plan.explain());
+        System.out.println("The cheap Samsung tablets are " + plan.execute());
+
         /*
         TODO add methods in the ProductService which are using Predicates for returning:
             - the sections which have more than 3 products
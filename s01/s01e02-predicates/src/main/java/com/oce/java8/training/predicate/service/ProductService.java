@@ -3,10 +3,19 @@ package com.oce.java8.training.predicate.service;
 import com.oce.java8.training.model.Product;
 import com.oce.java8.training.model.Section;
 import com.oce.java8.training.bootstrap.StoreSetup;
+import com.oce.java8.training.catalog.ProductPredicate;
+import com.oce.java8.training.catalog.QueryKey;
+import com.oce.java8.training.catalog.QueryPlan;
+import com.oce.java8.training.catalog.QueryPlanner;
+import com.oce.java8.training.catalog.StoreIndex;
 import com.oce.java8.training.model.StoreSection;
 
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+
+import static com.oce.java8.training.catalog.ProductPredicate.inSection;
+import static com.oce.java8.training.catalog.ProductPredicate.nameContains;
+import static com.oce.java8.training.catalog.ProductPredicate.priceLessThan;
 
 /**
  * A simple service for managing {@link Product} entities
@@ -15,19 +24,37 @@ import java.util.stream.Collectors;
  */
 public class ProductService {
 
+    private static final QueryKey NEXUS_TABLETS = new QueryKey(StoreSection.Tablets, "name contains 'nexus'",
+                                                               "products");
+
+    /**
+     * Returns the (unmodifiable, cached until the catalog changes) Nexus tablets
+     */
     public List<Product> getNexusTablets() {
-        final Section tablets = StoreSetup.getDefaultStore()
-                                          .getStoreSections()
-                                          .stream()
-                                          .filter(section -> section.getName().equals(StoreSection.Tablets))
-                                          .findFirst()
-                                          .orElseThrow(() -> new IllegalArgumentException("There's no section named 'Tablets'"));
-
-        final List<Product> products = tablets.getProducts()
-                                              .orElseThrow(() -> new IllegalArgumentException("There are no available tablets"));
-
-        return products.stream()
-                       .filter(product -> product.getName().toLowerCase().contains("nexus"))
-                       .collect(Collectors.toList());
+        return StoreSetup.getDefaultQueryCache()
+                         .get(NEXUS_TABLETS, this::findNexusTablets);
+    }
+
+    private List<Product> findNexusTablets() {
+        final StoreIndex storeIndex = StoreSetup.getDefaultStoreIndex();
+        final Section tablets = storeIndex.getSection(StoreSection.Tablets);
+
+        if (!tablets.getProducts().isPresent()) {
+            throw new IllegalArgumentException("There are no available tablets");
+        }
+
+        // the name index only verifies the products which share all the trigrams of 'nexus'
+        return Collections.unmodifiableList(storeIndex.findByName(StoreSection.Tablets, "nexus"));
+    }
+
+    /**
+     * Plans the search of the Samsung tablets cheaper than the given price; the cheap section and price checks are
+     * evaluated before the name check, whatever the order in which they are written
+     */
+    public QueryPlan planCheapSamsungTablets(final double maxPrice) {
+        final ProductPredicate cheapSamsungTablets = nameContains("samsung").and(priceLessThan(maxPrice))
+                                                                            .and(inSection(StoreSection.Tablets));
+
+        return new QueryPlanner(StoreSetup.getDefaultStoreIndex()).plan(cheapSamsungTablets);
     }
 }
@@ -30,19 +30,11 @@ public class ProductService {
     }
 
     private Section getTabletsSection() {
-        return StoreSetup.getDefaultStore()
-                         .getStoreSections()
-                         .stream()
-                         .filter(tablets())
-                         .findFirst()
-                         .orElseThrow(() -> new IllegalArgumentException("There's no section named 'Tablets'"));
+        return StoreSetup.getDefaultStoreIndex()
+                         .getSection(StoreSection.Tablets);
     }
 
     private Predicate<Product> appleProducts() {
         return product -> product.getName().contains("Apple");
     }
-
-    private Predicate<Section> tablets() {
-        return section -> section.getName().equals(StoreSection.Tablets);
-    }
 }
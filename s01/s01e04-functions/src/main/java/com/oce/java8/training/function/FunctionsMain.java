@@ -3,6 +3,7 @@ package com.oce.java8.training.function;
 import com.oce.java8.training.function.service.ProductService;
 import com.oce.java8.training.model.Product;
 
+import java.nio.channels.Channels;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
@@ -106,9 +107,15 @@ public class FunctionsMain {
         // using a Consumer on the retrieved items
         descriptions.forEach(printer());
 
-        // TODO add a method to retrieve all the monitors which have a price bigger than 50
+        // the same descriptions, rendered straight into the output channel
+        productService.writeSamsungTabletDescriptions(Channels.newChannel(System.out));
 
-        // TODO add a method to retrieve all the products which have a price bigger than 100
+        // the price filters are answered by the sorted price index
+        productService.getMonitorsWithPriceBiggerThan(50)
+                      .forEach(System.out::println);
+
+        productService.getProductsWithPriceBiggerThan(100)
+                      .forEach(System.out::println);
     }
 
     private static void sectionFunctions() {
@@ -1,10 +1,14 @@
 package com.oce.java8.training.function.service;
 
 import com.oce.java8.training.bootstrap.StoreSetup;
+import com.oce.java8.training.catalog.QueryKey;
+import com.oce.java8.training.codec.ProductRenderer;
 import com.oce.java8.training.model.Product;
 import com.oce.java8.training.model.Section;
 import com.oce.java8.training.model.StoreSection;
 
+import java.nio.channels.WritableByteChannel;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.function.Function;
@@ -18,21 +22,53 @@ import java.util.stream.Collectors;
  */
 public class ProductService {
 
+    private static final String DESCRIPTION_PREFIX = "The product is: ";
+
+    private static final QueryKey SAMSUNG_TABLET_DESCRIPTIONS = new QueryKey(StoreSection.Tablets,
+                                                                             "name contains 'Samsung'",
+                                                                             "descriptions");
+
+    /**
+     * Returns the (unmodifiable, cached until the catalog changes) descriptions of the Samsung tablets
+     */
     public Set<String> getSamsungTabletDescriptions() {
-        final Section tablets = StoreSetup.getDefaultStore()
-                                          .getStoreSections()
-                                          .stream()
-                                          .filter(section -> section.getName().equals(StoreSection.Tablets))
-                                          .findFirst()
-                                          .orElseThrow(() -> new IllegalArgumentException("There's no section named 'Tablets'"));
-
-        final List<Product> products = tablets.getProducts()
-                                              .orElseThrow(() -> new IllegalArgumentException("There are no products"));
-
-        return products.stream()
-                       .filter(samsungProducts())
-                       .map(displayProduct())
-                       .collect(Collectors.toSet());
+        return StoreSetup.getDefaultQueryCache()
+                         .get(SAMSUNG_TABLET_DESCRIPTIONS, () -> Collections.unmodifiableSet(
+                                 getTablets().stream()
+                                             .filter(samsungProducts())
+                                             .map(displayProduct())
+                                             .collect(Collectors.toSet())));
+    }
+
+    /**
+     * Writes the same descriptions in the given channel, without building a String per product
+     *
+     * @return the number of written bytes
+     */
+    public long writeSamsungTabletDescriptions(final WritableByteChannel channel) {
+        final List<Product> samsungTablets = getTablets().stream()
+                                                         .filter(samsungProducts())
+                                                         .collect(Collectors.toList());
+
+        return new ProductRenderer(DESCRIPTION_PREFIX).renderAll(samsungTablets, channel);
+    }
+
+    public List<Product> getMonitorsWithPriceBiggerThan(final double price) {
+        return StoreSetup.getDefaultStoreIndex()
+                         .findByPriceGreaterThan(StoreSection.Monitors, price);
+    }
+
+    public List<Product> getProductsWithPriceBiggerThan(final double price) {
+        return StoreSetup.getDefaultStoreIndex()
+                         .findByPriceGreaterThan(price);
+    }
+
+    private List<Product> getTablets() {
+        final Section tablets = StoreSetup.getDefaultStoreIndex()
+                                          .getSection(StoreSection.Tablets);
+
+        return tablets.getProducts()
+                      .orElseThrow(() -> new IllegalArgumentException("There are no products"));
     }
 
     private Predicate<Product> samsungProducts() {
@@ -40,6 +76,6 @@ public class ProductService {
     }
 
     private Function<Product, String> displayProduct() {
-        return product -> "The product is: " + product.toString();
+        return product -> DESCRIPTION_PREFIX + product.toString();
     }
 }
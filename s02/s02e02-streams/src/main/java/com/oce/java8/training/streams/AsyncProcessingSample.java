@@ -1,17 +1,14 @@
 package com.oce.java8.training.streams;
 
+import com.oce.java8.training.concurrent.ExecutorStrategy;
+import com.oce.java8.training.concurrent.FanOutAggregator;
 import com.oce.java8.training.model.Product;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -23,60 +20,66 @@ public class AsyncProcessingSample {
 
     private static final int AVAILABLE_PROCESSORS = Runtime.getRuntime().availableProcessors();
 
+    private static final int POOL_SIZE = Math.max(1, AVAILABLE_PROCESSORS / 2);
+
+    private static final int MAX_IN_FLIGHT_QUERIES = 64;
+
     private static final Random RANDOM = new Random();
 
     public static void main(String[] args) {
-        // 0 - create the ExecutorService and ExecutorCompletionService objects
+        // 0 - create the ExecutorService and FanOutAggregator objects
 
         /* An ExecutorService provides methods to manage termination and methods that can produce a
             Future for tracking progress of one or more asynchronous tasks.
             It is the entry point into concurrent handling code in Java.
             A few predefined implementations are available through static methods in the Executors class.
          */
-        final ExecutorService executorService = Executors.newFixedThreadPool(AVAILABLE_PROCESSORS / 2);
         //final ExecutorService executorService = new ForkJoinPool(AVAILABLE_PROCESSORS / 2);
 
-        final ExecutorCompletionService<Integer> executorCompletionService =
-                new ExecutorCompletionService<>(executorService);
+        // the deposit queries block, so they run on virtual threads where available (JDK 21+), or else on a fixed pool
+        final ExecutorStrategy executorStrategy = ExecutorStrategy.fromSystemProperty(
+                ExecutorStrategy.forBlockingTasks(POOL_SIZE), POOL_SIZE);
+        final ExecutorService executorService = executorStrategy.newExecutor("deposit-query");
+        System.out.println("Querying the deposits using the '" + executorStrategy + "' executor strategy");
 
-        final List<Integer> depositIds = Arrays.asList(10, 20, 30, 25, 21, 54, 35, 213, 45, 65, 76, 34);
-        final long now = System.currentTimeMillis();
+        // the deposits which do not answer in 1.5 seconds are cancelled and reported as missing
+        final FanOutAggregator fanOutAggregator =
+                new FanOutAggregator(executorService, MAX_IN_FLIGHT_QUERIES, 1500, TimeUnit.MILLISECONDS);
 
-        // 1 - submit tasks --> fork phase
-        int submittedTasks = 0;
-        for (final Integer depositId : depositIds) {
-            executorCompletionService.submit(new ProductProcessor(depositId));
-            submittedTasks++;
-        }
+        final List<Integer> depositIds = Arrays.asList(10, 20, 30, 25, 21, 54, 35, 213, 45, 65, 76, 34);
 
         /* A Future object is the result of an asynchronous computation.
          The result can *only* be retrieved using the get method, when the computation has completed,
          blocking if necessary until it is ready.
          In other words, it represents a wrapper around a value, where this value is the outcome of a computation.
-        */
-        Future<Integer> productStock;
 
-        // 2 - poll for async results --> join phase
-        final List<Integer> productStocks = new ArrayList<>(submittedTasks);
+         The aggregator submits the tasks (the fork phase) and polls their futures, in their completion order
+         (the join phase), adding every received stock to the running total.
+        */
+        final FanOutAggregator.Aggregate<Integer, Integer> totalStock;
         try {
-            for (int i = 0; i < submittedTasks; i++) {
-                productStock = executorCompletionService.poll(1000, TimeUnit.MILLISECONDS);
-
-                if (productStock != null && productStock.isDone()) {
-                    productStocks.add(productStock.get());
-                }
-            }
-        } catch (final ExecutionException | InterruptedException ex) { // catching .get() thrown exceptions
+            totalStock = fanOutAggregator.aggregate(depositIds, ProductProcessor::new, 0, Integer::sum,
+                    (depositId, runningTotal) -> System.out.println("The running total stock is " + runningTotal +
+                                                                            ", after the deposit " + depositId));
+        } catch (final InterruptedException ex) {
             ex.printStackTrace();
+            Thread.currentThread().interrupt();
+            executorService.shutdownNow();
+            return;
         }
 
         System.out.println();
-        System.out.println("The entire processing took " + (System.currentTimeMillis() - now) + " ms");
+        System.out.println("The entire processing took " + totalStock.getElapsedMillis() + " ms");
 
-        final int totalStock = productStocks.stream()
-                                            .mapToInt(Integer::intValue)
-                                            .sum();
-        System.out.println("The total stock of products is " + totalStock);
+        System.out.println("The total stock of products is " + totalStock.getValue());
+        if (!totalStock.getMissingKeys().isEmpty()) {
+            System.out.println("The total stock is partial, the deposits " + totalStock.getMissingKeys() +
+                                       " did not answer in time");
+        }
+        if (!totalStock.getFailures().isEmpty()) {
+            System.out.println("The total stock is partial, the deposits " + totalStock.getFailures().keySet() +
+                                       " failed");
+        }
 
         // 3 - if needed - shutdown the executorService
         executorService.shutdown();
@@ -84,6 +84,10 @@ public class HelloStreams {
                                                                     .flatMap(it -> getProducts(it).stream())
                                                                     .filter(product -> product.getName().length() > 3)
                                                                     .collect(Collectors.toList());
+
+        final List<Product> productsWithoutFlatMap = defaultStore.parallelProducts() // sized, evenly split
+                                                                 .filter(product -> product.getName().length() > 3)
+                                                                 .collect(Collectors.toList());
     }
 
     private static void matchingOperations(final List<String> holiday) {
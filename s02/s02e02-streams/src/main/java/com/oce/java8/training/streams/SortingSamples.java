@@ -1,7 +1,17 @@
 package com.oce.java8.training.streams;
 
+import com.oce.java8.training.bootstrap.CatalogGenerator;
+import com.oce.java8.training.codec.ExternalSorter;
+import com.oce.java8.training.codec.ProductRenderer;
 import com.oce.java8.training.model.Product;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
@@ -30,5 +40,27 @@ public class SortingSamples {
         products.stream()
                 .sorted(Comparator.comparing(Product::getName))
                 .forEach(System.out::println);
+
+        sortedExport();
+    }
+
+    // a catalog export sorted by price, within a fixed memory budget, whatever the size of the catalog
+    private static void sortedExport() {
+        final Product[] catalog = new CatalogGenerator(42).generateProducts(3, 500_000);
+        final ExternalSorter sorter = new ExternalSorter(Comparator.comparingDouble(Product::getPrice),
+                                                         8 << 20, Paths.get(System.getProperty("java.io.tmpdir")));
+
+        try {
+            final Path export = Files.createTempFile("catalog-by-price", ".txt");
+            try (ExternalSorter.SortedProducts sortedProducts = sorter.sort(Arrays.asList(catalog).iterator());
+                 FileChannel channel = FileChannel.open(export, StandardOpenOption.WRITE)) {
+                final long written = new ProductRenderer().renderAll(() -> sortedProducts, channel);
+                System.out.println("Exported " + written + " bytes of sorted products to " + export);
+            } finally {
+                Files.deleteIfExists(export);
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
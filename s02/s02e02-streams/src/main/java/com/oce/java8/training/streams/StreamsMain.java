@@ -1,15 +1,33 @@
 package com.oce.java8.training.streams;
 
+import com.oce.java8.training.bootstrap.CatalogGenerator;
 import com.oce.java8.training.bootstrap.StoreSetup;
+import com.oce.java8.training.catalog.PricingEngine;
+import com.oce.java8.training.catalog.ProductColumns;
+import com.oce.java8.training.catalog.SectionStatistics;
+import com.oce.java8.training.collectors.BytesLongMap;
+import com.oce.java8.training.collectors.CountMinSketch;
+import com.oce.java8.training.collectors.ObjectIntMap;
+import com.oce.java8.training.collectors.ObjectLongMap;
+import com.oce.java8.training.collectors.PrimitiveCollectors;
+import com.oce.java8.training.collectors.QuantileDigest;
+import com.oce.java8.training.collectors.SketchCollectors;
+import com.oce.java8.training.concurrent.QueryRuntime;
+import com.oce.java8.training.model.Discount;
+import com.oce.java8.training.model.EntityInterner;
 import com.oce.java8.training.model.Product;
 import com.oce.java8.training.model.Section;
 import com.oce.java8.training.model.Store;
 import com.oce.java8.training.model.StoreSection;
+import com.oce.java8.training.text.WordCounter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -45,9 +63,19 @@ public class StreamsMain {
 
         collectorsSamples();
 
+        wordCounting();
+
         numbersStreams();
 
         mapOperations();
+
+        columnarOperations();
+
+        sectionStatistics();
+
+        sketches();
+
+        entityInterning();
     }
 
     private static void averageOnStrings() {
@@ -105,6 +133,10 @@ public class StreamsMain {
                                          .stream()
                                          .flatMap(section -> getProductsStream(section))
                                          .collect(Collectors.toList());
+
+        // the same products, through a sized spliterator, which splits well for the parallel streams
+        List<Product> allProductsInParallel = store.parallelProducts()
+                                                   .collect(Collectors.toList());
     }
 
     private static void simpleStreamsTests() {
@@ -164,15 +196,24 @@ public class StreamsMain {
         STRINGS.parallelStream()
                .forEach(item -> System.out.println(Thread.currentThread().getName() + ": " + item));
 
-        final ForkJoinPool forkJoinPool = new ForkJoinPool(AVAILABLE_PROCESSORS / 2);
-        final ForkJoinTask<?> forkJoinTask = forkJoinPool.submit(() ->
-                                                                         System.out.println(Thread.currentThread().getName() + " - something"));
-        if (forkJoinTask.isDone()) {
-            try {
-                System.out.println(forkJoinTask.get());
-            } catch (final ExecutionException | InterruptedException e) {
-                e.printStackTrace();
-            }
+        // each tenant runs its parallel streams on its own bounded pool, instead of the common pool
+        try (final QueryRuntime queryRuntime = new QueryRuntime()) {
+            queryRuntime.addTenant("analytics", Math.max(1, AVAILABLE_PROCESSORS / 2), 10);
+            queryRuntime.addTenant("storefront", Math.max(1, AVAILABLE_PROCESSORS / 4), 100);
+
+            final CompletableFuture<Long> longWords = queryRuntime.submit("analytics", () ->
+                    STRINGS.parallelStream()
+                           .peek(item -> System.out.println(Thread.currentThread().getName() + ": " + item))
+                           .filter(word -> word.length() > 3)
+                           .count());
+
+            final List<Product> cheapProducts = queryRuntime.execute("storefront", () ->
+                    StoreSetup.getDefaultStore()
+                              .parallelProducts()
+                              .filter(product -> product.getPrice() < 1000)
+                              .collect(Collectors.toList()));
+
+            System.out.println(longWords.join() + " long words, " + cheapProducts.size() + " cheap products");
         }
     }
 
@@ -186,6 +227,32 @@ public class StreamsMain {
                                                  .collect(Collectors.groupingBy(
                                                          Function.identity(), Collectors.counting()));
         System.out.println(collect);
+
+        // the same results, accumulated in primitive-valued open-addressing maps (no boxing, no node per key)
+        final ObjectIntMap<String> primitiveWordsLength = STRINGS.stream()
+                                                                 .distinct()
+                                                                 .collect(PrimitiveCollectors.toIntMap(value -> value,
+                                                                                                       String::length));
+        System.out.println(primitiveWordsLength);
+
+        final ObjectLongMap<String> wordsFrequency = STRINGS.parallelStream()
+                                                            .collect(PrimitiveCollectors.counting());
+        System.out.println(wordsFrequency);
+    }
+
+    private static void wordCounting() {
+        try {
+            final Path descriptions = Files.createTempFile("descriptions", ".txt");
+            // a mapped file cannot be deleted on some platforms until its buffers are garbage collected
+            descriptions.toFile().deleteOnExit();
+            Files.write(descriptions, Collections.nCopies(10_000, String.join(" ", STRINGS)), StandardCharsets.UTF_8);
+
+            // the file is mapped and tokenized in parallel chunks, instead of being read and split in the heap
+            final BytesLongMap wordsFrequency = WordCounter.countWords(descriptions);
+            System.out.println("The word 'holiday' appears " + wordsFrequency.get("holiday") + " times");
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     private static void numbersStreams() {
@@ -209,6 +276,88 @@ public class StreamsMain {
         months.put(2, "Feb");
     }
 
+    private static void columnarOperations() {
+        final ProductColumns columns = ProductColumns.of(StoreSetup.getDefaultStore());
+
+        // the scans run over contiguous primitive arrays, instead of walking the sections and products
+        System.out.println("There are " + columns.countPricesAbove(100) + " products with a price bigger than 100");
+
+        final int[] cheapTablets = columns.ordinals(StoreSection.Tablets)
+                                          .filter(ordinal -> columns.getPrice(ordinal) < 350)
+                                          .toArray();
+        Arrays.stream(cheapTablets)
+              .forEach(ordinal -> System.out.println(columns.getName(ordinal)));
+
+        System.out.println("The monitors are worth " + columns.sumPrices(StoreSection.Monitors));
+
+        // the discounted prices of the whole catalog, in a single batch pass
+        final double[] effectivePrices = PricingEngine.effectivePrices(columns);
+        System.out.println("After the discounts, the products are worth " + Arrays.stream(effectivePrices).sum());
+    }
+
+    private static void sectionStatistics() {
+        // count, sum, min, max and average price of every section, in a single (parallel) pass
+        final SectionStatistics statistics = SectionStatistics.of(StoreSetup.getDefaultStore());
+        System.out.println("The tablets statistics: " + statistics.get(StoreSection.Tablets));
+
+        // the same statistics, through the concurrent collector
+        final SectionStatistics collectedStatistics =
+                StoreSetup.getDefaultStore()
+                          .getStoreSections()
+                          .parallelStream()
+                          .flatMap(section -> getProductsStream(section).map(product ->
+                                  new AbstractMap.SimpleImmutableEntry<>(section.getName(), product)))
+                          .collect(SectionStatistics.collector(Map.Entry::getKey,
+                                                               entry -> entry.getValue().getPrice()));
+        System.out.println("The monitors statistics: " + collectedStatistics.get(StoreSection.Monitors));
+    }
+
+    private static void sketches() {
+        final Store catalog = new CatalogGenerator(7).generateStore(3, 200_000);
+
+        // approximate answers, in a few kilobytes instead of a set / map entry per distinct value
+        final long distinctNames = catalog.parallelProducts()
+                                          .collect(SketchCollectors.distinctCount(Product::getName))
+                                          .estimate();
+        System.out.println("There are about " + distinctNames + " distinct product names");
+
+        final CountMinSketch<String> tagFrequencies =
+                catalog.parallelProducts()
+                       .flatMap(product -> product.getTags().map(List::stream).orElseGet(Stream::empty))
+                       .collect(SketchCollectors.frequencies(Function.identity(), 5));
+        System.out.println("The most used tags are " + tagFrequencies.getHeavyHitters());
+
+        final Map<StoreSection, QuantileDigest> pricePercentiles =
+                catalog.getStoreSections()
+                       .parallelStream()
+                       .flatMap(section -> getProductsStream(section).map(product ->
+                               new AbstractMap.SimpleImmutableEntry<>(section.getName(), product.getPrice())))
+                       .collect(Collectors.groupingBy(Map.Entry::getKey, () -> new EnumMap<>(StoreSection.class),
+                                                      SketchCollectors.percentiles(Map.Entry::getValue)));
+        pricePercentiles.forEach((section, percentiles) ->
+                System.out.println(section + ": median " + percentiles.quantile(0.5) + ", p99 " +
+                                           percentiles.quantile(0.99)));
+    }
+
+    private static void entityInterning() {
+        final EntityInterner interner = new EntityInterner();
+
+        // the two sections are equal (same id and name), but the discount and the tags of their tablet differ
+        final Section discounted = new Section(1, StoreSection.Tablets, Collections.singletonList(
+                new Product(1, "iPad", 500, new Discount(10, Discount.Type.Percent), Arrays.asList("apple"))));
+        final Section notDiscounted = new Section(1, StoreSection.Tablets, Collections.singletonList(
+                new Product(1, "iPad", 500, null, Arrays.asList("apple", "ios"))));
+
+        final Section internedDiscounted = interner.intern(discounted);
+        final Section internedNotDiscounted = interner.intern(notDiscounted);
+        Stream.of(internedDiscounted, internedNotDiscounted)
+              .flatMap(StreamsMain::getProductsStream)
+              .forEach(product -> System.out.println("The interned section has the product " + product + ", " +
+                                                             product.getDiscount() + ", " + product.getTags()));
+        System.out.println("Interning an equal section again returns the same instance - " +
+                                   (interner.intern(discounted) == internedDiscounted));
+    }
+
     private static Stream<Product> getProductsStream(final Section section) {
         return section.getProducts()
                       .orElse(new ArrayList<>())
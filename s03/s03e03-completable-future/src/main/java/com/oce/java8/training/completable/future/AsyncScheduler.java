@@ -0,0 +1,72 @@
+package com.oce.java8.training.completable.future;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * The scheduler shared by the asynchronous stages, for their timeouts, delays and delayed actions.
+ * <p>
+ * JDK 1.8 has no {@code CompletableFuture.orTimeout} or {@code delayedExecutor}, so they are built on a
+ * {@link HashedWheelTimer}: any number of pending delays costs a single thread, instead of a thread blocked in
+ * {@code Thread.sleep} for each of them. The timer thread only hands the expired actions to the common pool, so the
+ * stages which depend on them never run on it.
+ */
+final class AsyncScheduler {
+
+    // 5 ms ticks, with a rotation of about 2.5 seconds
+    private static final HashedWheelTimer TIMER = new HashedWheelTimer("async-scheduler", 5, 512);
+
+    private static final Executor ACTIONS_EXECUTOR = ForkJoinPool.commonPool();
+
+    private AsyncScheduler() {
+    }
+
+    /**
+     * Runs the given action after the given delay, on the common pool
+     */
+    static HashedWheelTimer.Timeout schedule(final Runnable action, final long delayMillis) {
+        return TIMER.newTimeout(() -> ACTIONS_EXECUTOR.execute(action), delayMillis);
+    }
+
+    /**
+     * Returns a future which is completed after the given delay, without blocking any thread in the meantime;
+     * cancelling it cancels its timer
+     */
+    static CompletableFuture<Void> delay(final long delayMillis) {
+        final CompletableFuture<Void> delay = new CompletableFuture<>();
+        final HashedWheelTimer.Timeout timeout = schedule(() -> delay.complete(null), delayMillis);
+        delay.whenComplete((value, exception) -> timeout.cancel());
+        return delay;
+    }
+
+    /**
+     * Returns the value of the given supplier after the given delay, e.g. to simulate the latency of a remote call
+     */
+    static <T> CompletableFuture<T> delayed(final Supplier<T> supplier, final long delayMillis) {
+        return delay(delayMillis).thenApply(ignored -> supplier.get());
+    }
+
+    /**
+     * Completes the given future with a {@link TimeoutException}, if it is not completed in the given time
+     *
+     * @return the given future
+     */
+    static <T> CompletableFuture<T> orTimeout(final CompletableFuture<T> future, final long timeoutMillis) {
+        if (!future.isDone()) {
+            final HashedWheelTimer.Timeout timeout = schedule(() -> future.completeExceptionally(
+                    new TimeoutException("The stage did not complete in " + timeoutMillis + " ms")), timeoutMillis);
+            future.whenComplete((value, exception) -> timeout.cancel());
+        }
+        return future;
+    }
+
+    /**
+     * Returns the number of delays and timeouts which are still pending
+     */
+    static int getPendingTimeouts() {
+        return TIMER.getPendingTimeouts();
+    }
+}
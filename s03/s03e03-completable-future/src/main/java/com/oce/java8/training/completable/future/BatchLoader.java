@@ -0,0 +1,177 @@
+package com.oce.java8.training.completable.future;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Coalesces the single key requests which arrive close to each other into batches, answered by a single call of
+ * the batch function.
+ * <p>
+ * A batch is loaded when its window elapses (counted from its first request) or as soon as it holds the maximum
+ * number of keys, whichever comes first. A key which is already requested (batched or being loaded) is not loaded
+ * again: its callers share the same load.
+ * <p>
+ * Every caller receives its own future, so a caller which cancels its future does not cancel the others.
+ */
+class BatchLoader<K, V> implements AutoCloseable {
+
+    private final Function<Set<K>, CompletableFuture<Map<K, V>>> batchFunction;
+    private final long windowMillis;
+    private final int maxBatchSize;
+
+    // guarded by 'this'
+    private final Map<K, CompletableFuture<V>> inFlight = new HashMap<>();
+    private Set<K> batch = new LinkedHashSet<>();
+    private HashedWheelTimer.Timeout scheduledLoad;
+    private boolean closed;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    /**
+     * @param batchFunction returns the future values of all the given keys, without blocking
+     * @param windowMillis  how long a batch waits for more keys
+     * @param maxBatchSize  the number of keys which loads a batch right away
+     */
+    BatchLoader(final Function<Set<K>, CompletableFuture<Map<K, V>>> batchFunction, final long windowMillis,
+                final int maxBatchSize) {
+        if (windowMillis < 0 || maxBatchSize <= 0) {
+            throw new IllegalArgumentException("The window cannot be negative and the batch size must be positive");
+        }
+
+        this.batchFunction = Objects.requireNonNull(batchFunction);
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Returns the future value of the given key, which is completed when its batch is loaded
+     */
+    CompletableFuture<V> load(final K key) {
+        Objects.requireNonNull(key, "The keys cannot be null");
+        requests.incrementAndGet();
+
+        final CompletableFuture<V> future;
+        Set<K> fullBatch = null;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("The batch loader is closed");
+            }
+            final CompletableFuture<V> existing = inFlight.get(key);
+            if (existing != null) {
+                return existing.thenApply(Function.identity());
+            }
+
+            future = new CompletableFuture<>();
+            inFlight.put(key, future);
+            batch.add(key);
+            if (batch.size() >= maxBatchSize) {
+                fullBatch = takeBatch();
+            } else if (scheduledLoad == null) {
+                scheduledLoad = AsyncScheduler.schedule(this::loadScheduledBatch, windowMillis);
+            }
+        }
+
+        if (fullBatch != null) {
+            loadBatch(fullBatch);
+        }
+        return future.thenApply(Function.identity());
+    }
+
+    /**
+     * Returns the number of requested keys, including the ones which shared a future
+     */
+    long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * Returns the number of calls of the batch function
+     */
+    long getBatches() {
+        return batches.get();
+    }
+
+    /**
+     * Loads the pending batch and stops accepting requests
+     */
+    @Override
+    public void close() {
+        final Set<K> lastBatch;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lastBatch = takeBatch();
+        }
+
+        loadBatch(lastBatch);
+    }
+
+    @Override
+    public String toString() {
+        return "BatchLoader{requests=" + getRequests() + ", batches=" + getBatches() + "}";
+    }
+
+    private void loadScheduledBatch() {
+        final Set<K> scheduledBatch;
+        synchronized (this) {
+            scheduledBatch = takeBatch();
+        }
+        loadBatch(scheduledBatch);
+    }
+
+    // must be called while holding the lock
+    private Set<K> takeBatch() {
+        if (scheduledLoad != null) {
+            scheduledLoad.cancel();
+            scheduledLoad = null;
+        }
+        final Set<K> taken = batch;
+        batch = new LinkedHashSet<>();
+        return taken;
+    }
+
+    private void loadBatch(final Set<K> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        batches.incrementAndGet();
+        try {
+            batchFunction.apply(keys)
+                         .whenComplete((values, exception) -> complete(keys, values, exception));
+        } catch (final RuntimeException e) {
+            complete(keys, null, e);
+        }
+    }
+
+    private void complete(final Set<K> keys, final Map<K, V> values, final Throwable exception) {
+        final Map<K, CompletableFuture<V>> futures = new HashMap<>();
+        synchronized (this) {
+            // the keys are removed first, so the requests made from now on start a new batch
+            keys.forEach(key -> futures.put(key, inFlight.remove(key)));
+        }
+
+        // a batch function which returns no map fails the whole batch
+        final Throwable failure = exception == null && values == null
+                ? new IllegalStateException("The batch function returned no values")
+                : exception;
+        futures.forEach((key, future) -> {
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            } else if (!values.containsKey(key)) {
+                future.completeExceptionally(new IllegalStateException("The batch has no value for '" + key + "'"));
+            } else {
+                future.complete(values.get(key));
+            }
+        });
+    }
+}
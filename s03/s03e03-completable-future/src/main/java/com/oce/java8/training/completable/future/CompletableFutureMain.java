@@ -1,13 +1,16 @@
 package com.oce.java8.training.completable.future;
 
+import com.oce.java8.training.concurrent.ExecutorStrategy;
+
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -17,7 +20,16 @@ public class CompletableFutureMain {
 
     private static final int AVAILABLE_PROCESSORS = Runtime.getRuntime().availableProcessors();
 
-    private static final Executor EXECUTOR = Executors.newWorkStealingPool(AVAILABLE_PROCESSORS / 2);
+    private static final int POOL_SIZE = Math.max(1, AVAILABLE_PROCESSORS / 2);
+
+    // the stages do not block, so a bounded work-stealing pool is the default; see ExecutorStrategy.SYSTEM_PROPERTY
+    private static final ExecutorStrategy EXECUTOR_STRATEGY =
+            ExecutorStrategy.fromSystemProperty(ExecutorStrategy.workStealing(POOL_SIZE), POOL_SIZE);
+
+    private static final ExecutorService EXECUTOR = EXECUTOR_STRATEGY.newExecutor("completable-future");
+
+    // the reserve stock is only requested for the 10% slowest stock requests; no answer in 5 seconds is a failure
+    private static final HedgingPolicy STOCK_HEDGING = new HedgingPolicy(0.9, 1000, 5000);
 
     public static void main(String[] args) {
         helloSimpleCompletableFutures();
@@ -32,6 +44,10 @@ public class CompletableFutureMain {
 
         moreComplexProductsOperations();
 
+        batchedStockLookups();
+
+        manyDelayedCalls();
+
         completingMultipleCompletionStages();
 
         completingAnyCompletionStage();
@@ -123,25 +139,62 @@ public class CompletableFutureMain {
     private static void moreComplexProductsOperations() {
         final ProductProcessor productProcessor = new ProductProcessor();
 
-        final CompletableFuture<Long> getProductsStock = productProcessor.getProductsStock("iPad");
-        final CompletableFuture<Long> getReserveStock = productProcessor.getReserveStock("iPad");
+        final Supplier<CompletableFuture<Long>> getProductsStock = () -> productProcessor.getProductsStock("iPad");
+        final Supplier<CompletableFuture<Long>> getReserveStock = () -> productProcessor.getReserveStock("iPad");
         final Function<Long, CompletableFuture<Double>> getProductsPrice = productProcessor.getProductsPrice();
         final Function<Double, CompletableFuture<String>> getProductsDisplayText = productProcessor.getDisplayedText();
 
         /*
             The five processing stages:
-                - 1) get products stock OR get the reserve stock (whichever finishes first)
+                - 1) get products stock OR get the reserve stock, if the products stock is late (whichever finishes
+                     first; the other one is cancelled)
                 - 2) get products price, for the resulted stock
                 - 3) get the displayed text, for the products price and stock
                 - 4) when either the displayed text or an exception is returned, complete the stage asynchronously
         */
 
-        final String productsText = getProductsStock.applyToEitherAsync(getReserveStock, Function.identity(), EXECUTOR)
-                                                    .thenComposeAsync(getProductsPrice, EXECUTOR)
-                                                    .thenComposeAsync(getProductsDisplayText, EXECUTOR)
-                                                    .whenCompleteAsync(CompletableFutureMain::processResult, EXECUTOR)
-                                                    .join();
+        final String productsText = STOCK_HEDGING.execute(getProductsStock, getReserveStock)
+                                                 .thenComposeAsync(getProductsPrice, EXECUTOR)
+                                                 .thenComposeAsync(getProductsDisplayText, EXECUTOR)
+                                                 .whenCompleteAsync(CompletableFutureMain::processResult, EXECUTOR)
+                                                 .join();
         System.out.println(productsText);
+        System.out.println(STOCK_HEDGING);
+    }
+
+    private static void batchedStockLookups() {
+        final ProductProcessor productProcessor = new ProductProcessor();
+        final long batchesBefore = ProductProcessor.getStockLoader().getBatches();
+
+        // a burst of concurrent requests, for a few product names, is answered by a single catalog scan
+        final List<CompletableFuture<String>> stocks =
+                Stream.of("iPad", "Nexus", "Galaxy", "iPad", "Nexus", "iPad")
+                      .map(productName -> productProcessor.getProductsStock(productName)
+                                                          .thenApply(stock -> productName + " - " + stock))
+                      .collect(Collectors.toList());
+
+        stocks.stream()
+              .map(CompletableFuture::join)
+              .forEach(System.out::println);
+        System.out.println("The stocks were loaded by " + (ProductProcessor.getStockLoader().getBatches() -
+                batchesBefore) + " catalog scan(s)");
+    }
+
+    private static void manyDelayedCalls() {
+        final long now = System.currentTimeMillis();
+
+        // 10000 simulated remote calls, waiting up to a second each, are in flight at once on a single timer thread
+        final List<CompletableFuture<Integer>> calls =
+                IntStream.range(0, 10_000)
+                         .mapToObj(value -> AsyncScheduler.delayed(() -> value, value % 1000))
+                         .collect(Collectors.toList());
+        System.out.println("Pending delays: " + AsyncScheduler.getPendingTimeouts() + ", live threads: " +
+                                   Thread.activeCount());
+
+        final int sum = calls.stream()
+                             .mapToInt(CompletableFuture::join)
+                             .sum();
+        System.out.println("The delayed calls returned " + sum + " in " + (System.currentTimeMillis() - now) + " ms");
     }
 
     private static void completingMultipleCompletionStages() {
@@ -195,7 +248,7 @@ public class CompletableFutureMain {
     }
 
     private static void shutdownExecutor() {
-        ((ExecutorService) EXECUTOR).shutdown();
+        EXECUTOR.shutdown();
         //System.out.println("The executor was properly shutdown");
     }
 }
\ No newline at end of file
@@ -0,0 +1,249 @@
+package com.oce.java8.training.completable.future;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A hashed timing wheel, which runs any number of delayed tasks with a single thread.
+ * <p>
+ * The wheel is an array of buckets, one per tick; a timeout is placed in the bucket of its deadline, with the number
+ * of full rotations it still has to wait. On every tick, the worker thread only visits the current bucket, so adding
+ * and cancelling a timeout take a constant time, whatever the number of pending ones. The deadlines are rounded up
+ * to the next tick, so the timer is meant for the delays much longer than a tick (e.g. timeouts and simulated
+ * latencies). The tasks run on the worker thread and must be short.
+ */
+final class HashedWheelTimer {
+
+    // the timeouts added by a tick, at most; the others are added by the next ticks
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+    private final Bucket[] wheel;
+    private final int mask;
+    private final long tickNanos;
+    private final long startTime = System.nanoTime();
+
+    private final Queue<Timeout> newTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingTimeouts = new AtomicInteger();
+
+    private final Thread worker;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile boolean stopped;
+
+    /**
+     * @param threadName the name of the (daemon) worker thread
+     * @param tickMillis the resolution of the timer
+     * @param wheelSize  the number of buckets, rounded up to a power of 2; a rotation lasts
+     *                   {@code tickMillis * wheelSize}
+     */
+    HashedWheelTimer(final String threadName, final long tickMillis, final int wheelSize) {
+        if (tickMillis <= 0 || wheelSize <= 0 || wheelSize > 1 << 20) {
+            throw new IllegalArgumentException("The tick must be positive and the wheel size between 1 and 2^20");
+        }
+
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        this.wheel = new Bucket[size];
+        for (int index = 0; index < size; index++) {
+            wheel[index] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+
+        this.worker = new Thread(this::run, threadName);
+        this.worker.setDaemon(true);
+    }
+
+    /**
+     * Runs the given task, on the worker thread, after the given delay
+     */
+    Timeout newTimeout(final Runnable task, final long delayMillis) {
+        if (stopped) {
+            throw new IllegalStateException("The timer is stopped");
+        }
+        if (started.compareAndSet(false, true)) {
+            worker.start();
+        }
+
+        final long deadline = System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis));
+        final Timeout timeout = new Timeout(task, deadline);
+        pendingTimeouts.incrementAndGet();
+        newTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Returns the number of timeouts which are neither expired nor cancelled
+     */
+    int getPendingTimeouts() {
+        return pendingTimeouts.get();
+    }
+
+    /**
+     * Stops the worker thread; the pending timeouts never expire
+     */
+    void stop() {
+        stopped = true;
+        worker.interrupt();
+    }
+
+    private void run() {
+        long tick = 0;
+        while (!stopped) {
+            final long tickDeadline = tickNanos * (tick + 1);
+            if (!waitUntil(tickDeadline)) {
+                return;
+            }
+
+            transferNewTimeouts(tick);
+            wheel[(int) (tick & mask)].expire(tickDeadline);
+            tick++;
+        }
+    }
+
+    // returns false if the timer was stopped while waiting
+    private boolean waitUntil(final long deadline) {
+        long remaining;
+        while ((remaining = deadline - (System.nanoTime() - startTime)) > 0) {
+            LockSupport.parkNanos(this, remaining);
+            if (stopped) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void transferNewTimeouts(final long tick) {
+        Timeout timeout;
+        for (int transferred = 0; transferred < MAX_TRANSFERS_PER_TICK && (timeout = newTimeouts.poll()) != null;
+             transferred++) {
+            if (timeout.isCancelled()) {
+                continue;
+            }
+
+            // the timeouts which are already late expire on the current tick
+            final long deadlineTick = Math.max(timeout.deadline / tickNanos, tick);
+            timeout.remainingRounds = (deadlineTick - tick) / wheel.length;
+            wheel[(int) (deadlineTick & mask)].add(timeout);
+        }
+    }
+
+    /**
+     * A task scheduled on the timer, which can be cancelled until it expires
+     */
+    final class Timeout {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+        private final long deadline;
+
+        // not private, so it can be updated by the field updater
+        volatile int state = PENDING;
+
+        // only used by the worker thread
+        private long remainingRounds;
+        private Timeout previous;
+        private Timeout next;
+
+        private Timeout(final Runnable task, final long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the timeout, and returns false if it already expired or was cancelled
+         */
+        boolean cancel() {
+            if (!STATE.compareAndSet(this, PENDING, CANCELLED)) {
+                return false;
+            }
+            // the cancelled timeout stays in its bucket until the worker thread visits it
+            pendingTimeouts.decrementAndGet();
+            return true;
+        }
+
+        boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        boolean isExpired() {
+            return state == EXPIRED;
+        }
+
+        private void expire() {
+            if (!STATE.compareAndSet(this, PENDING, EXPIRED)) {
+                return;
+            }
+            pendingTimeouts.decrementAndGet();
+
+            try {
+                task.run();
+            } catch (final Throwable throwable) {
+                // reported like an uncaught exception, but the worker thread keeps running the other timeouts
+                final Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, throwable);
+            }
+        }
+    }
+
+    /**
+     * The timeouts of a tick, as a doubly linked list which is only used by the worker thread
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(final Timeout timeout) {
+            timeout.previous = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void expire(final long tickDeadline) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                final Timeout next = timeout.next;
+                if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else if (timeout.remainingRounds <= 0 && timeout.deadline <= tickDeadline) {
+                    remove(timeout);
+                    timeout.expire();
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        private void remove(final Timeout timeout) {
+            if (timeout.previous == null) {
+                head = timeout.next;
+            } else {
+                timeout.previous.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.previous;
+            } else {
+                timeout.next.previous = timeout.previous;
+            }
+            timeout.previous = null;
+            timeout.next = null;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.oce.java8.training.completable.future;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Hedges the requests of a slow source with the requests of a backup source.
+ * <p>
+ * The backup request is only started when the primary one is slower than the given percentile of the recent
+ * primary latencies (or when it fails), so only the slowest requests are sent twice. The first successful response
+ * wins and the other request is cancelled; the whole exchange fails with a {@link TimeoutException} if no response
+ * arrives before the deadline.
+ */
+class HedgingPolicy {
+
+    private static final int LATENCY_SAMPLES = 256;
+
+    // the hedging delay is the initial one until the percentile is meaningful
+    private static final int MIN_LATENCY_SAMPLES = 20;
+
+    private final double percentile;
+    private final long initialHedgeDelayMillis;
+    private final long timeoutMillis;
+
+    // the latest primary latencies, in a ring buffer; guarded by 'this'
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private int latenciesCount;
+    private int nextLatency;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedgedRequests = new AtomicLong();
+    private final AtomicLong backupWins = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    /**
+     * @param percentile              the percentile (between 0 and 1) of the primary latencies after which the
+     *                                backup request is started
+     * @param initialHedgeDelayMillis the hedging delay used until enough latencies are tracked
+     * @param timeoutMillis           the deadline of the whole exchange
+     */
+    HedgingPolicy(final double percentile, final long initialHedgeDelayMillis, final long timeoutMillis) {
+        if (percentile <= 0 || percentile >= 1 || initialHedgeDelayMillis < 0 || timeoutMillis <= 0) {
+            throw new IllegalArgumentException("The percentile must be between 0 and 1, the initial delay cannot be " +
+                                                       "negative and the timeout must be positive");
+        }
+
+        this.percentile = percentile;
+        this.initialHedgeDelayMillis = initialHedgeDelayMillis;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Starts the primary request right away and the backup one only if needed
+     */
+    <T> CompletableFuture<T> execute(final Supplier<CompletableFuture<T>> primary,
+                                     final Supplier<CompletableFuture<T>> backup) {
+        requests.incrementAndGet();
+        return new HedgedRequest<>(primary, backup).start();
+    }
+
+    /**
+     * Returns the current delay after which a backup request is started
+     */
+    synchronized long getHedgeDelayMillis() {
+        if (latenciesCount < MIN_LATENCY_SAMPLES) {
+            return initialHedgeDelayMillis;
+        }
+
+        final long[] sorted = Arrays.copyOf(latencies, latenciesCount);
+        Arrays.sort(sorted);
+        final int index = (int) Math.ceil(percentile * latenciesCount) - 1;
+        return Math.max(1, sorted[Math.max(0, index)]);
+    }
+
+    @Override
+    public String toString() {
+        return "HedgingPolicy{requests=" + requests + ", hedgedRequests=" + hedgedRequests + ", backupWins=" +
+                backupWins + ", timeouts=" + timeouts + ", hedgeDelayMillis=" + getHedgeDelayMillis() + "}";
+    }
+
+    private synchronized void recordLatency(final long latencyMillis) {
+        latencies[nextLatency] = latencyMillis;
+        nextLatency = (nextLatency + 1) % LATENCY_SAMPLES;
+        latenciesCount = Math.min(latenciesCount + 1, LATENCY_SAMPLES);
+    }
+
+    /**
+     * The state of a single hedged exchange
+     */
+    private final class HedgedRequest<T> {
+        private final Supplier<CompletableFuture<T>> primarySupplier;
+        private final Supplier<CompletableFuture<T>> backupSupplier;
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final AtomicBoolean backupStarted = new AtomicBoolean();
+        private final long startTime = System.nanoTime();
+
+        private volatile CompletableFuture<T> primary;
+        private volatile CompletableFuture<T> backup;
+        private volatile HashedWheelTimer.Timeout hedgeTimer;
+
+        HedgedRequest(final Supplier<CompletableFuture<T>> primarySupplier,
+                      final Supplier<CompletableFuture<T>> backupSupplier) {
+            this.primarySupplier = primarySupplier;
+            this.backupSupplier = backupSupplier;
+        }
+
+        CompletableFuture<T> start() {
+            primary = call(primarySupplier);
+            hedgeTimer = AsyncScheduler.schedule(this::startBackup, getHedgeDelayMillis());
+            primary.whenComplete(this::onPrimaryCompleted);
+
+            result.whenComplete((value, exception) -> cancelLosers(exception));
+            return AsyncScheduler.orTimeout(result, timeoutMillis);
+        }
+
+        private void onPrimaryCompleted(final T value, final Throwable exception) {
+            if (result.isDone()) {
+                return;
+            }
+
+            if (exception == null) {
+                recordLatency(getElapsedMillis());
+                result.complete(value);
+            } else if (!startBackup() && isFailed(backup)) {
+                result.completeExceptionally(exception);
+            }
+            // otherwise the backup request answers, as it was just started or it is still running
+        }
+
+        private void onBackupCompleted(final T value, final Throwable exception) {
+            if (exception == null) {
+                if (result.complete(value)) {
+                    backupWins.incrementAndGet();
+                }
+            } else if (isFailed(primary)) {
+                result.completeExceptionally(exception);
+            }
+        }
+
+        // returns false if the backup request was already started
+        private boolean startBackup() {
+            if (result.isDone() || !backupStarted.compareAndSet(false, true)) {
+                return false;
+            }
+
+            hedgedRequests.incrementAndGet();
+            final CompletableFuture<T> started = call(backupSupplier);
+            backup = started;
+            started.whenComplete(this::onBackupCompleted);
+            return true;
+        }
+
+        private void cancelLosers(final Throwable exception) {
+            if (exception instanceof TimeoutException) {
+                timeouts.incrementAndGet();
+            }
+            final HashedWheelTimer.Timeout timer = hedgeTimer;
+            if (timer != null) {
+                timer.cancel();
+            }
+
+            if (!primary.isDone()) {
+                // the cancelled primary requests still count, so the percentile is not biased towards the fast ones
+                recordLatency(getElapsedMillis());
+                primary.cancel(true);
+            }
+            final CompletableFuture<T> startedBackup = backup;
+            if (startedBackup != null) {
+                startedBackup.cancel(true);
+            }
+        }
+
+        private long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        }
+
+        private CompletableFuture<T> call(final Supplier<CompletableFuture<T>> supplier) {
+            try {
+                return supplier.get();
+            } catch (final RuntimeException e) {
+                final CompletableFuture<T> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                return failed;
+            }
+        }
+
+        private boolean isFailed(final CompletableFuture<T> future) {
+            return future != null && future.isCompletedExceptionally();
+        }
+    }
+}
@@ -1,15 +1,15 @@
 package com.oce.java8.training.completable.future;
 
 import com.oce.java8.training.bootstrap.StoreSetup;
-import com.oce.java8.training.model.Section;
 import com.oce.java8.training.model.Store;
-import org.jooq.lambda.Unchecked;
 
-import java.util.ArrayList;
-import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.IntStream;
 
 class ProductProcessor {
@@ -18,61 +18,72 @@ class ProductProcessor {
 
     private static final int MAX_SLEEP_TIME = 2000;
 
+    // the stock requests received in 10 ms (or 64 distinct product names) are answered by a single catalog scan
+    private static final BatchLoader<String, Long> STOCK_LOADER =
+            new BatchLoader<>(ProductProcessor::getProductsStocks, 10, 64);
+
     CompletableFuture<Long> getProductsStock(final String productName) {
-        return CompletableFuture.supplyAsync(() -> {
-            displayStageAndThreadName("Getting the product stock for '" + productName + "'");
-            sleepALittle();
-
-            final Store store = StoreSetup.getDefaultStore();
-            return store.getStoreSections()
-                        .stream()
-                        .map(Section::getProducts)
-                        .flatMap(products -> products.orElse(new ArrayList<>())
-                                                     .stream())
-                        .filter(product -> product.getName().contains(productName))
-                        .count();
-        });
+        displayStageAndThreadName("Requesting the product stock for '" + productName + "'");
+        return STOCK_LOADER.load(productName);
+    }
+
+    static BatchLoader<String, Long> getStockLoader() {
+        return STOCK_LOADER;
     }
 
     CompletableFuture<Long> getReserveStock(final String productName) {
-        return CompletableFuture.supplyAsync(() -> {
-            displayStageAndThreadName("Getting the reserve stock for '" + productName + "'");
-            sleepALittle();
+        displayStageAndThreadName("Getting the reserve stock for '" + productName + "'");
 
-            return IntStream.of(RANDOM.nextInt(100))
-                            .count();
-        });
+        return withSimulatedLatency(() -> IntStream.of(RANDOM.nextInt(100))
+                                                   .count());
     }
 
     Function<Long, CompletableFuture<Double>> getProductsPrice() {
         return productsStock -> {
             displayStageAndThreadName("Getting the product price");
-            sleepALittle();
 
-            return CompletableFuture.supplyAsync(() -> productsStock * 230d);
+            return withSimulatedLatency(() -> productsStock * 230d);
         };
     }
 
     Function<Double, CompletableFuture<String>> getDisplayedText() {
         return productsPrice -> {
             displayStageAndThreadName("Getting the displayed text");
-            sleepALittle();
 
-            return CompletableFuture.supplyAsync(() -> "The price of the products is " + productsPrice);
+            return withSimulatedLatency(() -> "The price of the products is " + productsPrice);
         };
     }
+
+    private static CompletableFuture<Map<String, Long>> getProductsStocks(final Set<String> productNames) {
+        displayStageAndThreadName("Getting the product stocks for " + productNames);
+
+        return withSimulatedLatency(() -> countProducts(productNames));
+    }
+
+    private static Map<String, Long> countProducts(final Set<String> productNames) {
+        final Map<String, Long> stocks = new HashMap<>();
+        productNames.forEach(productName -> stocks.put(productName, 0L));
+
+        final Store store = StoreSetup.getDefaultStore();
+        store.products()
+             .forEach(product -> productNames.stream()
+                                              .filter(productName -> product.getName().contains(productName))
+                                              .forEach(productName -> stocks.merge(productName, 1L, Long::sum)));
+        return stocks;
+    }
+
     // TODO return a Map of the products and their stock, using a grouping collector
 
-    private void sleepALittle() {
-        Unchecked.consumer(it -> Thread.sleep(getRandomSleepDuration()))
-                 .accept(null);
+    // the response arrives after a random latency, without blocking any thread while waiting for it
+    private static <T> CompletableFuture<T> withSimulatedLatency(final Supplier<T> response) {
+        return AsyncScheduler.delayed(response, getRandomSleepDuration());
     }
 
-    private int getRandomSleepDuration() {
+    private static int getRandomSleepDuration() {
         return RANDOM.nextInt(MAX_SLEEP_TIME);
     }
 
-    private void displayStageAndThreadName(final String operationName) {
+    private static void displayStageAndThreadName(final String operationName) {
         System.out.println("[" + Thread.currentThread().getName() + "] " + operationName + "...");
     }
 }